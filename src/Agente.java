@@ -5,4 +5,39 @@ public abstract interface Agente {
 
 	public abstract boolean getSegundaAposta(int apostaMaisAlta);
 
+	/**
+	 * No poker com troca, escolhe as cartas a descartar entre as duas apostas.
+	 * DescarteOtimo da a melhor escolha.
+	 * 
+	 * @param jogo as 5 cartas, ordenadas da maior para a menor
+	 * @return bit i ligado para trocar jogo[i]
+	 */
+	public default int getDescarte(Carta[] jogo) {
+		return 0;
+	}
+
+	/**
+	 * Antes de cada decisao, o instante (System.nanoTime) em que a mesa vai ler a
+	 * resposta, ja descontado o atraso observado deste agente. Quem calcula por
+	 * aproximacoes sucessivas (EquidadeAnytime) para nesse instante com a melhor
+	 * resposta ate ali.
+	 * 
+	 * @param prazo System.nanoTime limite, ou Long.MAX_VALUE se a mesa espera a
+	 *              resposta (simulacao)
+	 */
+	public default void setPrazo(long prazo) {
+	}
+
+	/**
+	 * Recebe o resultado da mao que acabou de terminar. O buffer e do
+	 * Controlador deste agente e nao muda durante a chamada, mas e reutilizado
+	 * nas maos seguintes, por isso deve ser lido durante a chamada (ou copiado
+	 * para uma EstatisticasOponentes) e nao guardado.
+	 * 
+	 * @param observacao resultado da mao
+	 * @param assento    posicao deste agente na mesa
+	 */
+	public default void observaMao(ObservacaoMao observacao, int assento) {
+	}
+
 }
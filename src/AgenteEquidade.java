@@ -0,0 +1,70 @@
+/**
+ * Agente que aposta pela chance de ganhar estimada com EquidadeAnytime, usando
+ * todo o prazo que a mesa da para cada decisao. O numero de oponentes e o
+ * sapato vem da ultima mao observada.
+ * 
+ * Escolhido como "equidade" no Simulador, CoordenadorSimulacao e TesteDeCarga
+ * (Simulador.criaAgente), ou por classe no ClienteAgente. So joga na Mesa de 5
+ * cartas: EquidadeAnytime recusa as maos do Hold'em.
+ */
+public class AgenteEquidade implements Agente {
+
+	static final long MAXIMO_AMOSTRAS = 2_000; // sem prazo (simulacao)
+	static final int APOSTA_MAXIMA = 100;
+
+	private EquidadeAnytime equidade;
+	private final long semente;
+	private int oponentes = Poker.assentos - 1;
+	private long prazo = Long.MAX_VALUE;
+	private double chance;
+	private int aposta;
+
+	public AgenteEquidade() {
+		this(System.nanoTime());
+	}
+
+	public AgenteEquidade(long semente) {
+		this.semente = semente;
+		equidade = new EquidadeAnytime(Mesa.baralhos(Poker.assentos), MAXIMO_AMOSTRAS, semente);
+	}
+
+	@Override
+	public void setPrazo(long prazo) {
+		this.prazo = prazo;
+	}
+
+	@Override
+	public int getPrimeiraAposta(Carta[] jogo) {
+		chance = equidade.estima(jogo, oponentes, prazo);
+		// acima da parte justa do pote, aposta proporcional a vantagem
+		double justa = 1.0 / (oponentes + 1);
+		if (chance <= justa)
+			aposta = Poker.apostaMinima;
+		else
+			aposta = Poker.apostaMinima
+					+ (int) ((APOSTA_MAXIMA - Poker.apostaMinima) * (chance - justa) / (1 - justa));
+		return aposta;
+	}
+
+	@Override
+	public boolean getSegundaAposta(int apostaMaisAlta) {
+		// paga se o que espera ganhar do pote (no maximo todos pagando) supera o
+		// complemento
+		double pote = (oponentes + 1.0) * apostaMaisAlta;
+		return chance * pote >= apostaMaisAlta - aposta;
+	}
+
+	@Override
+	public void observaMao(ObservacaoMao observacao, int assento) {
+		int ativos = 0;
+		for (int i = 0; i < observacao.jogadores; i++) {
+			if (i != assento && observacao.saldos[i] > 0)
+				ativos++;
+		}
+		oponentes = Math.max(1, ativos);
+		int baralhos = Mesa.baralhos(observacao.jogadores);
+		if (baralhos != equidade.baralhos)
+			equidade = new EquidadeAnytime(baralhos, MAXIMO_AMOSTRAS, semente);
+	}
+
+}
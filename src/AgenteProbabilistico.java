@@ -12,8 +12,46 @@ public class AgenteProbabilistico implements Agente {
 
     private MaoDePoker maoDePoker = new MaoDePoker();
 
+    private final boolean verbose;  // Mostra as contas de cada decisão
+
+    // Constantes da estratégia, ajustáveis pelo AjusteProbabilistico
+    static final int LIMITE_MUITO_FORTE = 0;  // odds abaixo disso: mão muito forte
+    static final int LIMITE_FORTE = 1;
+    static final int LIMITE_MEDIA = 2;
+    static final int LIMITE_MARGINAL = 3;
+    static final int FATOR_MUITO_FORTE = 4;  // fração do pote apostada
+    static final int FATOR_FORTE = 5;
+    static final int FATOR_MEDIA = 6;
+    static final int FATOR_MARGINAL = 7;
+    static final int FATOR_FRACA = 8;
+    static final int APOSTA_MAXIMA = 9;
+    static final int POTE_SUPOSTO = 10;  // pote assumido na primeira aposta
+    static final double[] PARAMETROS_PADRAO = { 0.1, 1, 5, 10, 1.0, 0.75, 0.50, 0.25, 0.05, 400, 100 };
+    static final String[] NOMES_PARAMETROS = { "limiteMuitoForte", "limiteForte", "limiteMedia",
+            "limiteMarginal", "fatorMuitoForte", "fatorForte", "fatorMedia", "fatorMarginal", "fatorFraca",
+            "apostaMaxima", "poteSuposto" };
+    private final double[] parametros;
+
     // Construtor inicializando com stack inicial e odds map
     public AgenteProbabilistico() {
+        this(true);
+    }
+
+    // Sem verbose para simulações, onde o println domina o tempo da mão
+    public AgenteProbabilistico(boolean verbose) {
+        this(verbose, PARAMETROS_PADRAO);
+    }
+
+    // Com outras constantes, sem verbose (ver PARAMETROS_PADRAO)
+    public AgenteProbabilistico(double[] parametros) {
+        this(false, parametros);
+    }
+
+    private AgenteProbabilistico(boolean verbose, double[] parametros) {
+        if (parametros.length != PARAMETROS_PADRAO.length)
+            throw new IllegalArgumentException("Esperados " + PARAMETROS_PADRAO.length + " parâmetros");
+        this.verbose = verbose;
+        this.parametros = parametros.clone();
         this.stack = 1000;  // Cada jogador começa com 1000 fichas
         this.valorParaPagar = 0;
         this.poteAtual = 0;
@@ -21,6 +59,11 @@ public class AgenteProbabilistico implements Agente {
 
         // Inicializa as odds de diferentes mãos
         inicializarOdds();
+
+        // No poker com troca, as tabelas do descarte (segundos na primeira vez)
+        // ficam prontas aqui e não dentro da primeira decisão, que estouraria o prazo
+        if (Poker.trocaDeCartas)
+            DescarteOtimo.padrao();
     }
 
     // Metodo que calcula as pot odds
@@ -40,20 +83,27 @@ public class AgenteProbabilistico implements Agente {
     }
 
     private double determinarFatorAposta(double oddsMao) {
-        if (oddsMao < 0.1) {  // Mão muito forte
-            return 1.0;  // Apostar 100% do pote
+        if (oddsMao < parametros[LIMITE_MUITO_FORTE]) {  // Mão muito forte
+            return parametros[FATOR_MUITO_FORTE];  // Apostar 100% do pote
         }
-        if (oddsMao < 1) {  // Mão forte
-            return 0.75;  // Apostar 75% do pote
+        if (oddsMao < parametros[LIMITE_FORTE]) {  // Mão forte
+            return parametros[FATOR_FORTE];  // Apostar 75% do pote
         }
-        if (oddsMao < 5) {  // Mão média
-            return 0.50;  // Apostar 50% do pote
+        if (oddsMao < parametros[LIMITE_MEDIA]) {  // Mão média
+            return parametros[FATOR_MEDIA];  // Apostar 50% do pote
         }
-        if (oddsMao < 10) {  // Mão marginal
-            return 0.25;  // Apostar 25% do pote
+        if (oddsMao < parametros[LIMITE_MARGINAL]) {  // Mão marginal
+            return parametros[FATOR_MARGINAL];  // Apostar 25% do pote
         }
         // Mão fraca
-        return 0.05;  // Apostar 5% do pote ou o mínimo
+        return parametros[FATOR_FRACA];  // Apostar 5% do pote ou o mínimo
+    }
+
+    // No poker com troca, descarta o que maximiza a chance de ganhar. As compras
+    // são contadas de um baralho, mesmo em mesas de mais de 10 assentos (sapato)
+    @Override
+    public int getDescarte(Carta[] jogo) {
+        return DescarteOtimo.padrao().descarte(jogo);
     }
 
     @Override
@@ -62,12 +112,13 @@ public class AgenteProbabilistico implements Agente {
     this.oddsMao = definirOddsMao(jogo);
 
     // A primeira aposta é determinada pela análise da mão
-    this.poteAtual = 100;  // Supondo o valor do pote na primeira rodada
+    this.poteAtual = parametros[POTE_SUPOSTO];  // Supondo o valor do pote na primeira rodada
     this.valorParaPagar = 10;  // Mínimo da primeira aposta é 10
 
     // Calcula as pot odds
     double potOdds = calcularPotOdds(valorParaPagar, poteAtual);
-    System.out.println("Pot Odds: " + potOdds);
+    if (verbose)
+        System.out.println("Pot Odds: " + potOdds);
 
     // Decide se deve apostar com base nas odds da mão e nas pot odds
     if (deveApostar(oddsMao, potOdds)) {
@@ -76,13 +127,15 @@ public class AgenteProbabilistico implements Agente {
         
         // Calcula o valor da aposta com base no fator determinado
         double valorAposta = calcularValorAposta(poteAtual, fatorAposta);
-        System.out.println("Você deve apostar: " + valorAposta);
+        if (verbose)
+            System.out.println("Você deve apostar: " + valorAposta);
         
         // Aposta o valor calculado, mas garante que não aposta mais do que o stack
-        return (int) Math.min(valorAposta, 400.0);
+        return (int) Math.min(valorAposta, parametros[APOSTA_MAXIMA]);
     } else {
         // Se as odds da mão e as pot odds não são favoráveis, aposta o mínimo
-        System.out.println("Não vale a pena apostar. Aposta mínima de 10.");
+        if (verbose)
+            System.out.println("Não vale a pena apostar. Aposta mínima de 10.");
         return 10;  // Aposta mínima
     }
     }
@@ -95,17 +148,20 @@ public class AgenteProbabilistico implements Agente {
 
         // Calcula pot odds considerando o que o jogador precisa pagar relativamente ao total no pote
         double potOdds = calcularPotOdds(valorParaPagar, poteAtual);
-        System.out.println("Pot Odds para segunda aposta: " + potOdds);
+        if (verbose)
+            System.out.println("Pot Odds para segunda aposta: " + potOdds);
 
         // Calcula a decisão de apostar novamente com base nas odds da mão e nas pot odds
         boolean deveContinuar = deveApostar(oddsMao, potOdds);
-        System.out.println("Você deve apostar? " + deveContinuar);
+        if (verbose)
+            System.out.println("Você deve apostar? " + deveContinuar);
 
         // Se decidir continuar, calcula um valor de aposta ideal baseado nas odds
         if (deveContinuar) {
             double fatorAposta = determinarFatorAposta(oddsMao);
             double valorAposta = calcularValorAposta(poteAtual, fatorAposta);
-            System.out.println("Valor ideal da aposta: " + valorAposta);
+            if (verbose)
+                System.out.println("Valor ideal da aposta: " + valorAposta);
 
             // Aqui você pode decidir o que fazer com o valor da aposta, por exemplo, retornar ou armazenar
             // Para simplificação, vamos retornar true se decidir apostar
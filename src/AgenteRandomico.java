@@ -8,6 +8,10 @@ public class AgenteRandomico implements Agente {
 		rand = new Random();
 	}
 
+	public AgenteRandomico(long semente) {
+		rand = new Random(semente);
+	}
+
 	@Override
 	public int getPrimeiraAposta(Carta[] jogo) {
 		return rand.nextInt(50);
@@ -0,0 +1,56 @@
+
+/**
+ * Adaptador que faz um agente de outro processo parecer um Agente local para o
+ * Controlador. Cada decisao vira um pedido no ServidorAgentes; se a resposta
+ * nao chegar dentro do prazo o agente aposta o minimo e desiste.
+ */
+public class AgenteRemoto implements Agente {
+
+	private final ServidorAgentes servidor;
+	final ServidorAgentes.Conexao conexao;
+	final String nome;
+	private long prazoEmMilis;
+
+	// contadores de decisoes perdidas por prazo ou desconexao
+	volatile int timeouts;
+
+	AgenteRemoto(ServidorAgentes servidor, ServidorAgentes.Conexao conexao, String nome, long prazoEmMilis) {
+		this.servidor = servidor;
+		this.conexao = conexao;
+		this.nome = nome;
+		this.prazoEmMilis = prazoEmMilis;
+	}
+
+	public String getNome() {
+		return nome;
+	}
+
+	public void setPrazo(long prazoEmMilis) {
+		this.prazoEmMilis = prazoEmMilis;
+	}
+
+	@Override
+	public int getPrimeiraAposta(Carta[] jogo) {
+		ServidorAgentes.Pedido pedido = new ServidorAgentes.Pedido(conexao, ProtocoloAgente.PRIMEIRA_APOSTA,
+				jogo, 0, prazoEmMilis);
+		servidor.envia(pedido);
+		// o jogo ja aplica a aposta minima
+		return responde(pedido, 0);
+	}
+
+	@Override
+	public boolean getSegundaAposta(int apostaMaisAlta) {
+		ServidorAgentes.Pedido pedido = new ServidorAgentes.Pedido(conexao, ProtocoloAgente.SEGUNDA_APOSTA, null,
+				apostaMaisAlta, prazoEmMilis);
+		servidor.envia(pedido);
+		return responde(pedido, 0) != 0;
+	}
+
+	private int responde(ServidorAgentes.Pedido pedido, int padrao) {
+		int resp = pedido.aguarda(padrao);
+		if (!pedido.respondido)
+			timeouts++;
+		return resp;
+	}
+
+}
@@ -0,0 +1,264 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Ajusta as constantes do AgenteProbabilistico (PARAMETROS_PADRAO) com uma
+ * estrategia evolutiva no estilo CMA-ES com covariancia diagonal (sep-CMA-ES).
+ * Os parametros variam em escala logaritmica em torno dos padroes, entao
+ * continuam positivos e todos andam na mesma escala.
+ * 
+ * Cada candidato joga no assento 0 do Simulador contra os oponentes, sempre no
+ * mesmo bloco de sementes: todos enfrentam as mesmas cartas e os mesmos
+ * oponentes randomicos, entao a diferenca de lucro vem dos parametros e nao da
+ * sorte. Os candidatos de uma geracao sao avaliados em paralelo, e os
+ * parametros sao arredondados em uma grade para que candidatos repetidos (como
+ * a media entre geracoes) venham do cache.
+ * 
+ * No fim, o padrao e o melhor encontrado sao comparados em outro bloco de
+ * sementes, para nao premiar quem so se deu bem nas sementes do ajuste.
+ * 
+ * java AjusteProbabilistico <oponentes separados por virgula> <geracoes>
+ * <partidas por avaliacao> <maos por partida>
+ */
+public class AjusteProbabilistico {
+
+	static final long SEMENTE_AJUSTE = 1_000_000;
+	static final long SEMENTE_VALIDACAO = 2_000_000;
+	static final double GRADE = 0.005; // na escala logaritmica, ~0,5%
+	static final double SIGMA_INICIAL = 0.3;
+
+	final String[] agentes; // o assento 0 e o candidato
+	final int partidas;
+	final int maosPorPartida;
+	private final ExecutorService executor;
+	private final ConcurrentHashMap<String, Double> cache = new ConcurrentHashMap<>();
+	final AtomicInteger avaliacoes = new AtomicInteger();
+	final AtomicInteger acertosCache = new AtomicInteger();
+
+	public AjusteProbabilistico(String[] oponentes, int partidas, int maosPorPartida, ExecutorService executor) {
+		agentes = new String[oponentes.length + 1];
+		agentes[0] = "ajuste";
+		System.arraycopy(oponentes, 0, agentes, 1, oponentes.length);
+		this.partidas = partidas;
+		this.maosPorPartida = maosPorPartida;
+		this.executor = executor;
+	}
+
+	/**
+	 * Parametros do AgenteProbabilistico para um ponto da escala logaritmica
+	 * 
+	 * @param z
+	 * @return
+	 */
+	static double[] parametros(double[] z) {
+		double[] p = new double[z.length];
+		for (int i = 0; i < z.length; i++) {
+			p[i] = AgenteProbabilistico.PARAMETROS_PADRAO[i] * Math.exp(z[i]);
+		}
+		return p;
+	}
+
+	static double[] arredonda(double[] z) {
+		double[] r = new double[z.length];
+		for (int i = 0; i < z.length; i++) {
+			r[i] = Math.round(z[i] / GRADE) * GRADE;
+		}
+		return r;
+	}
+
+	/**
+	 * Lucro por mao do candidato nas partidas a partir de sementeDe
+	 * 
+	 * @param z         ponto ja arredondado
+	 * @param sementeDe
+	 * @return
+	 */
+	double avalia(double[] z, long sementeDe) {
+		String chave = Arrays.toString(z) + "@" + sementeDe;
+		Double r = cache.get(chave);
+		if (r != null) {
+			acertosCache.incrementAndGet();
+			return r;
+		}
+		double[] p = parametros(z);
+		Simulador simulador = new Simulador(agentes, maosPorPartida) {
+			@Override
+			protected Agente criaAgente(int assento, long semente) {
+				return assento == 0 ? new AgenteProbabilistico(p) : super.criaAgente(assento, semente);
+			}
+		};
+		r = simulador.simula(sementeDe, sementeDe + partidas).lucroPorMao(0);
+		avaliacoes.incrementAndGet();
+		cache.put(chave, r);
+		return r;
+	}
+
+	// avalia todos em paralelo
+	double[] avalia(List<double[]> pontos, long sementeDe) throws InterruptedException {
+		List<Future<Double>> futuros = new ArrayList<>();
+		for (double[] z : pontos) {
+			futuros.add(executor.submit(() -> avalia(z, sementeDe)));
+		}
+		double[] r = new double[pontos.size()];
+		try {
+			for (int i = 0; i < r.length; i++) {
+				r[i] = futuros.get(i).get();
+			}
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		}
+		return r;
+	}
+
+	/**
+	 * Roda o sep-CMA-ES e retorna o melhor ponto (escala logaritmica) visto como
+	 * media de uma geracao
+	 * 
+	 * @param geracoes
+	 * @param semente  do sorteio dos candidatos
+	 * @return
+	 * @throws InterruptedException
+	 */
+	public double[] ajusta(int geracoes, long semente) throws InterruptedException {
+		int n = AgenteProbabilistico.PARAMETROS_PADRAO.length;
+		int lambda = Math.max(4 + (int) (3 * Math.log(n)), Runtime.getRuntime().availableProcessors());
+		int mu = lambda / 2;
+		double[] pesos = new double[mu];
+		double soma = 0;
+		for (int i = 0; i < mu; i++) {
+			pesos[i] = Math.log(mu + 0.5) - Math.log(i + 1);
+			soma += pesos[i];
+		}
+		double soma2 = 0;
+		for (int i = 0; i < mu; i++) {
+			pesos[i] /= soma;
+			soma2 += pesos[i] * pesos[i];
+		}
+		double muEff = 1 / soma2;
+		double cSigma = (muEff + 2) / (n + muEff + 5);
+		double dSigma = 1 + 2 * Math.max(0, Math.sqrt((muEff - 1) / (n + 1)) - 1) + cSigma;
+		double cc = (4 + muEff / n) / (n + 4 + 2 * muEff / n);
+		// a versao diagonal aprende mais rapido: (n + 2) / 3
+		double c1 = 2 / ((n + 1.3) * (n + 1.3) + muEff) * (n + 2) / 3;
+		double cMu = Math.min(1 - c1,
+				2 * (muEff - 2 + 1 / muEff) / ((n + 2) * (n + 2) + muEff) * (n + 2) / 3);
+		double chiN = Math.sqrt(n) * (1 - 1.0 / (4 * n) + 1.0 / (21 * n * n));
+
+		Random gerador = new Random(semente);
+		double[] media = new double[n];
+		double sigma = SIGMA_INICIAL;
+		double[] c = new double[n];
+		Arrays.fill(c, 1);
+		double[] pSigma = new double[n];
+		double[] pc = new double[n];
+
+		double[] melhor = media.clone();
+		double melhorLucro = avalia(arredonda(media), SEMENTE_AJUSTE);
+		System.out.printf("padrao: lucro/mao %.4f%n", melhorLucro);
+
+		for (int g = 0; g < geracoes; g++) {
+			long inicio = System.currentTimeMillis();
+			List<double[]> pontos = new ArrayList<>();
+			double[][] y = new double[lambda][n];
+			for (int k = 0; k < lambda; k++) {
+				double[] z = new double[n];
+				for (int i = 0; i < n; i++) {
+					z[i] = media[i] + sigma * Math.sqrt(c[i]) * gerador.nextGaussian();
+				}
+				z = arredonda(z);
+				for (int i = 0; i < n; i++) {
+					y[k][i] = (z[i] - media[i]) / sigma;
+				}
+				pontos.add(z);
+			}
+			double[] lucros = avalia(pontos, SEMENTE_AJUSTE);
+
+			// melhores primeiro
+			Integer[] ordem = new Integer[lambda];
+			for (int k = 0; k < lambda; k++) {
+				ordem[k] = k;
+			}
+			Arrays.sort(ordem, (a, b) -> Double.compare(lucros[b], lucros[a]));
+
+			double[] yw = new double[n];
+			for (int j = 0; j < mu; j++) {
+				for (int i = 0; i < n; i++) {
+					yw[i] += pesos[j] * y[ordem[j]][i];
+				}
+			}
+			double norma = 0;
+			for (int i = 0; i < n; i++) {
+				media[i] += sigma * yw[i];
+				pSigma[i] = (1 - cSigma) * pSigma[i]
+						+ Math.sqrt(cSigma * (2 - cSigma) * muEff) * yw[i] / Math.sqrt(c[i]);
+				norma += pSigma[i] * pSigma[i];
+			}
+			norma = Math.sqrt(norma);
+			boolean hSigma = norma / Math.sqrt(1 - Math.pow(1 - cSigma, 2 * (g + 1))) < (1.4 + 2.0 / (n + 1)) * chiN;
+			for (int i = 0; i < n; i++) {
+				pc[i] = (1 - cc) * pc[i] + (hSigma ? Math.sqrt(cc * (2 - cc) * muEff) * yw[i] : 0);
+				double rankMu = 0;
+				for (int j = 0; j < mu; j++) {
+					double v = y[ordem[j]][i];
+					rankMu += pesos[j] * v * v;
+				}
+				c[i] = (1 - c1 - cMu) * c[i] + c1 * (pc[i] * pc[i] + (hSigma ? 0 : cc * (2 - cc) * c[i]))
+						+ cMu * rankMu;
+			}
+			sigma *= Math.exp((cSigma / dSigma) * (norma / chiN - 1));
+
+			double lucroMedia = avalia(arredonda(media), SEMENTE_AJUSTE);
+			if (lucroMedia > melhorLucro) {
+				melhorLucro = lucroMedia;
+				melhor = arredonda(media);
+			}
+			System.out.printf("geracao %d: melhor candidato %.4f, media %.4f, sigma %.3f, %d ms%n", g + 1,
+					lucros[ordem[0]], lucroMedia, sigma, System.currentTimeMillis() - inicio);
+		}
+		return melhor;
+	}
+
+	static String tipo(double[] parametros) {
+		StringBuilder sb = new StringBuilder("prob");
+		for (double p : parametros) {
+			sb.append(':').append(String.format(Locale.ROOT, "%.4g", p));
+		}
+		return sb.toString();
+	}
+
+	public static void main(String[] args) throws InterruptedException {
+		String[] oponentes = args[0].split(",");
+		int geracoes = Integer.parseInt(args[1]);
+		int partidas = Integer.parseInt(args[2]);
+		int maos = Integer.parseInt(args[3]);
+		ExecutorService executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+		try {
+			AjusteProbabilistico ajuste = new AjusteProbabilistico(oponentes, partidas, maos, executor);
+			long inicio = System.currentTimeMillis();
+			double[] melhor = ajuste.ajusta(geracoes, 1);
+
+			double[] validacao = ajuste.avalia(List.of(new double[melhor.length], melhor), SEMENTE_VALIDACAO);
+			System.out.printf("%nvalidacao: padrao %.4f, ajustado %.4f lucro/mao%n", validacao[0], validacao[1]);
+			double[] p = parametros(melhor);
+			for (int i = 0; i < p.length; i++) {
+				System.out.printf("%-18s %10.4f (padrao %s)%n", AgenteProbabilistico.NOMES_PARAMETROS[i], p[i],
+						AgenteProbabilistico.PARAMETROS_PADRAO[i]);
+			}
+			System.out.println("tipo para o Simulador: " + tipo(p));
+			System.out.println(ajuste.avaliacoes + " avaliacoes, " + ajuste.acertosCache + " do cache, "
+					+ (System.currentTimeMillis() - inicio) + " ms");
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,584 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Arquivo historico de maos, com uma linha por jogador em cada mao (numero da
+ * mao no arquivo, assento, agente, pontos, aposta, aposta mais alta, pagou para
+ * ver e lucro), so acrescentado.
+ * 
+ * As linhas sao gravadas em blocos de 4096, coluna por coluna. Cada coluna
+ * guarda o minimo do bloco e os valores menos o minimo com o menor numero de
+ * bits que cabe (o numero da mao como diferenca para a linha anterior, quase
+ * sempre 0 ou 1 bit, e os pontos como posicao em um dicionario dos pontos do
+ * bloco). Da uns 5 a 6 bytes por linha.
+ * 
+ * O cabecalho de cada bloco tem os pontos minimo e maximo, os agentes (bit id %
+ * 64) e as categorias presentes, entao uma consulta como "Lento 3 pagou para
+ * ver com Carta Alta" pula os blocos que nao podem ter resposta sem ler as
+ * colunas. A leitura usa o arquivo mapeado em memoria e percorre as linhas sob
+ * demanda com um Cursor reaproveitado.
+ * 
+ * O arquivo e uma sequencia de registros: o nome de um agente (gravado antes da
+ * primeira linha dele) ou um bloco. Um bloco incompleto no fim (gravacao
+ * interrompida) e ignorado.
+ * 
+ * java ArquivoMaos grava <arquivo> <agentes separados por virgula> <partidas>
+ * <maos por partida>
+ * 
+ * java ArquivoMaos <arquivo> [agente] [categoria] [pagou: 0 ou 1]
+ */
+public class ArquivoMaos {
+
+	static final int MAGICO = 0x504b4d41; // "PKMA"
+	static final int VERSAO = 1;
+	static final byte REGISTRO_AGENTE = 1;
+	static final byte REGISTRO_BLOCO = 2;
+	static final int LINHAS_POR_BLOCO = 4096;
+
+	// colunas
+	static final int MAO = 0;
+	static final int ASSENTO = 1;
+	static final int AGENTE = 2;
+	static final int PONTOS = 3;
+	static final int APOSTA = 4;
+	static final int APOSTA_MAIS_ALTA = 5;
+	static final int PAGOU = 6;
+	static final int LUCRO = 7;
+	static final int COLUNAS = 8;
+
+	/**
+	 * Grava as maos. Os metodos sao synchronized para varias mesas poderem usar o
+	 * mesmo Escritor.
+	 */
+	public static class Escritor implements Closeable {
+
+		private final FileChannel canal;
+		private final ByteBuffer saida = ByteBuffer.allocate(1 << 18).order(ByteOrder.LITTLE_ENDIAN);
+		private final HashMap<String, Integer> ids = new HashMap<>();
+		private long mao; // ultima mao gravada
+		private final long[] maos = new long[LINHAS_POR_BLOCO];
+		private final int[][] colunas = new int[COLUNAS][LINHAS_POR_BLOCO];
+		private int linhas;
+		private final int[] ordenados = new int[LINHAS_POR_BLOCO];
+
+		/**
+		 * Abre o arquivo para acrescentar, criando se nao existir
+		 * 
+		 * @param arquivo
+		 * @throws IOException
+		 */
+		public Escritor(Path arquivo) throws IOException {
+			if (Files.exists(arquivo) && Files.size(arquivo) > 0) {
+				long fim;
+				try (Leitor leitor = new Leitor(arquivo)) {
+					Cursor c = leitor.consulta();
+					c.percorre();
+					for (int i = 0; i < leitor.agentes.size(); i++) {
+						if (leitor.agentes.get(i) != null)
+							ids.put(leitor.agentes.get(i), i);
+					}
+					mao = c.ultimaMao;
+					fim = c.fimValido;
+				}
+				canal = FileChannel.open(arquivo, StandardOpenOption.WRITE);
+				// descarta um bloco incompleto no fim
+				canal.truncate(fim);
+				canal.position(fim);
+			} else {
+				canal = FileChannel.open(arquivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+						StandardOpenOption.TRUNCATE_EXISTING);
+				saida.clear();
+				saida.putInt(MAGICO).putInt(VERSAO);
+				escreve();
+			}
+		}
+
+		/**
+		 * Retorna o id do agente, gravando o nome se for novo
+		 * 
+		 * @param nome
+		 * @return
+		 * @throws IOException
+		 */
+		public synchronized int agente(String nome) throws IOException {
+			Integer id = ids.get(nome);
+			if (id == null) {
+				id = ids.size();
+				byte[] bytes = nome.getBytes(StandardCharsets.UTF_8);
+				escreveBloco(); // o nome fica depois das linhas anteriores e antes das novas
+				saida.clear();
+				saida.put(REGISTRO_AGENTE).putInt(id).putShort((short) bytes.length).put(bytes);
+				escreve();
+				ids.put(nome, id);
+			}
+			return id;
+		}
+
+		/**
+		 * Acrescenta uma linha por jogador que tinha saldo na mao. Os jogos de quem
+		 * desistiu tambem sao avaliados.
+		 * 
+		 * @param observacao
+		 * @param cartas     cartas de cada assento
+		 * @param agentes    id do agente de cada assento
+		 * @throws IOException
+		 */
+		public synchronized void registra(ObservacaoMao observacao, Carta[][] cartas, int[] agentes)
+				throws IOException {
+			mao++;
+			for (int i = 0; i < observacao.jogadores; i++) {
+				if (observacao.primeirasApostas[i] == 0)
+					continue;
+				maos[linhas] = mao;
+				colunas[ASSENTO][linhas] = i;
+				colunas[AGENTE][linhas] = agentes[i];
+				colunas[PONTOS][linhas] = observacao.foiAoShowdown(i) ? observacao.pontos[i]
+						: Avaliacao.pontos(cartas[i]);
+				colunas[APOSTA][linhas] = observacao.apostas[i];
+				colunas[APOSTA_MAIS_ALTA][linhas] = observacao.apostaMaisAlta;
+				colunas[PAGOU][linhas] = observacao.pagaramPraVer[i] ? 1 : 0;
+				colunas[LUCRO][linhas] = observacao.lucro(i);
+				if (++linhas == LINHAS_POR_BLOCO)
+					escreveBloco();
+			}
+		}
+
+		private void escreveBloco() throws IOException {
+			int n = linhas;
+			if (n == 0)
+				return;
+			int[] pontos = colunas[PONTOS];
+			int pontosMin = Integer.MAX_VALUE, pontosMax = Integer.MIN_VALUE;
+			long agentes = 0;
+			int categorias = 0;
+			for (int i = 0; i < n; i++) {
+				pontosMin = Math.min(pontosMin, pontos[i]);
+				pontosMax = Math.max(pontosMax, pontos[i]);
+				agentes |= 1L << (colunas[AGENTE][i] & 63);
+				categorias |= 1 << Avaliacao.categoria(pontos[i]);
+			}
+			int[] deltas = colunas[MAO];
+			deltas[0] = 0;
+			for (int i = 1; i < n; i++) {
+				deltas[i] = (int) (maos[i] - maos[i - 1]);
+			}
+
+			saida.clear();
+			saida.put(REGISTRO_BLOCO);
+			int posicaoTamanho = saida.position();
+			saida.putInt(0);
+			saida.putInt(n).putLong(maos[0]).putLong(maos[n - 1]);
+			saida.putInt(pontosMin).putInt(pontosMax).putLong(agentes).putInt(categorias);
+			for (int c = 0; c < COLUNAS; c++) {
+				if (c == PONTOS) {
+					// dicionario dos pontos do bloco, e cada linha guarda a posicao
+					System.arraycopy(pontos, 0, ordenados, 0, n);
+					Arrays.sort(ordenados, 0, n);
+					int distintos = 0;
+					for (int i = 0; i < n; i++) {
+						if (i == 0 || ordenados[i] != ordenados[i - 1])
+							ordenados[distintos++] = ordenados[i];
+					}
+					saida.putInt(distintos);
+					empacota(ordenados, distintos);
+					for (int i = 0; i < n; i++) {
+						deltas[i] = Arrays.binarySearch(ordenados, 0, distintos, pontos[i]);
+					}
+					empacota(deltas, n);
+				} else {
+					empacota(colunas[c], n);
+				}
+			}
+			saida.putInt(posicaoTamanho, saida.position() - posicaoTamanho - 4);
+			escreve();
+			linhas = 0;
+		}
+
+		// minimo, bits e os valores menos o minimo, do bit menos significativo para o mais
+		private void empacota(int[] valores, int n) {
+			int minimo = Integer.MAX_VALUE, maximo = Integer.MIN_VALUE;
+			for (int i = 0; i < n; i++) {
+				minimo = Math.min(minimo, valores[i]);
+				maximo = Math.max(maximo, valores[i]);
+			}
+			if (n == 0)
+				minimo = maximo = 0;
+			int bits = 64 - Long.numberOfLeadingZeros((long) maximo - minimo);
+			int bytes = (int) (((long) n * bits + 7) / 8) + 8; // 8 a mais para ler um long no fim
+			saida.putInt(minimo).put((byte) bits).putInt(bytes);
+			int inicio = saida.position();
+			long acumulado = 0;
+			int quantos = 0;
+			for (int i = 0; i < n; i++) {
+				acumulado |= ((long) valores[i] - minimo) << quantos;
+				quantos += bits;
+				while (quantos >= 8) {
+					saida.put((byte) acumulado);
+					acumulado >>>= 8;
+					quantos -= 8;
+				}
+			}
+			if (quantos > 0)
+				saida.put((byte) acumulado);
+			while (saida.position() < inicio + bytes) {
+				saida.put((byte) 0);
+			}
+		}
+
+		private void escreve() throws IOException {
+			saida.flip();
+			while (saida.hasRemaining()) {
+				canal.write(saida);
+			}
+		}
+
+		/**
+		 * Grava as linhas do bloco incompleto
+		 * 
+		 * @throws IOException
+		 */
+		public synchronized void descarrega() throws IOException {
+			escreveBloco();
+		}
+
+		@Override
+		public synchronized void close() throws IOException {
+			escreveBloco();
+			canal.close();
+		}
+
+	}
+
+	/**
+	 * Le o arquivo mapeado em memoria, em janelas de ate 1 GB
+	 */
+	public static class Leitor implements Closeable {
+
+		static final long JANELA = 1 << 30;
+
+		private final FileChannel canal;
+		final long tamanho;
+		final ArrayList<String> agentes = new ArrayList<>();
+		private MappedByteBuffer janela;
+		private long inicioJanela;
+
+		public Leitor(Path arquivo) throws IOException {
+			canal = FileChannel.open(arquivo, StandardOpenOption.READ);
+			tamanho = canal.size();
+			ByteBuffer b = mapa(0, 8);
+			if (tamanho < 8 || b.getInt(posicao(0)) != MAGICO || b.getInt(posicao(4)) != VERSAO)
+				throw new IOException(arquivo + " nao e um arquivo de maos valido");
+		}
+
+		// janela com [inicio, inicio + n) mapeado
+		private ByteBuffer mapa(long inicio, int n) throws IOException {
+			if (janela == null || inicio < inicioJanela || inicio + n > inicioJanela + janela.capacity()) {
+				inicioJanela = inicio;
+				janela = canal.map(FileChannel.MapMode.READ_ONLY, inicio, Math.min(JANELA, tamanho - inicio));
+				janela.order(ByteOrder.LITTLE_ENDIAN);
+			}
+			return janela;
+		}
+
+		private int posicao(long arquivo) {
+			return (int) (arquivo - inicioJanela);
+		}
+
+		// id -> nome pelo id gravado no registro; ler o mesmo registro de novo (outro
+		// Cursor) nao muda nada
+		void registraAgente(int id, String nome) {
+			while (agentes.size() <= id)
+				agentes.add(null);
+			agentes.set(id, nome);
+		}
+
+		/**
+		 * Nome do agente (ja visto pelo Cursor)
+		 * 
+		 * @param id
+		 * @return
+		 */
+		public String nomeAgente(int id) {
+			return agentes.get(id);
+		}
+
+		public Cursor consulta() {
+			return new Cursor(this);
+		}
+
+		@Override
+		public void close() throws IOException {
+			canal.close();
+		}
+
+	}
+
+	/**
+	 * Percorre as linhas que passam nos filtros, um bloco por vez. Os campos
+	 * publicos sao os da linha atual e sao sobrescritos a cada proxima().
+	 */
+	public static class Cursor {
+
+		private final Leitor leitor;
+
+		// filtros
+		private String nomeAgente;
+		private int agente = -1; // -1 = qualquer, -2 = agente ainda nao visto
+		private int categorias = -1;
+		private int pontosMin = Integer.MIN_VALUE;
+		private int pontosMax = Integer.MAX_VALUE;
+		private int pagou = -1;
+
+		// linha atual
+		long mao;
+		int assento;
+		int idAgente;
+		int pontos;
+		int categoria;
+		int aposta;
+		int apostaMaisAlta;
+		boolean pagouPraVer;
+		int lucro;
+
+		// estatisticas
+		long blocosLidos;
+		long blocosPulados;
+		long ultimaMao;
+		long fimValido = 8; // fim do ultimo registro completo
+
+		// bloco atual
+		private long posicao = 8;
+		private ByteBuffer bloco;
+		private int linhas;
+		private int linha;
+		private final int[] minimos = new int[COLUNAS];
+		private final int[] bits = new int[COLUNAS];
+		private final int[] dados = new int[COLUNAS];
+		private int[] dicionario = new int[LINHAS_POR_BLOCO];
+		private boolean[] pontosAceitos = new boolean[LINHAS_POR_BLOCO]; // por posicao no dicionario
+
+		private Cursor(Leitor leitor) {
+			this.leitor = leitor;
+		}
+
+		public Cursor agente(String nome) {
+			nomeAgente = nome;
+			int id = leitor.agentes.indexOf(nome);
+			agente = id >= 0 ? id : -2;
+			return this;
+		}
+
+		/**
+		 * So as categorias de Avaliacao.categoria informadas
+		 * 
+		 * @param categorias
+		 * @return
+		 */
+		public Cursor categorias(int... categorias) {
+			this.categorias = 0;
+			for (int c : categorias) {
+				this.categorias |= 1 << c;
+			}
+			return this;
+		}
+
+		public Cursor pontos(int minimo, int maximo) {
+			pontosMin = minimo;
+			pontosMax = maximo;
+			return this;
+		}
+
+		public Cursor pagou(boolean pagou) {
+			this.pagou = pagou ? 1 : 0;
+			return this;
+		}
+
+		/**
+		 * Avanca para a proxima linha que passa nos filtros
+		 * 
+		 * @return false no fim do arquivo
+		 * @throws IOException
+		 */
+		public boolean proxima() throws IOException {
+			while (true) {
+				// colunas dos filtros primeiro, o resto so para as linhas que passam
+				while (linha < linhas) {
+					int i = linha++;
+					mao += coluna(MAO, i);
+					if (agente >= 0 && coluna(AGENTE, i) != agente)
+						continue;
+					if (pagou >= 0 && coluna(PAGOU, i) != pagou)
+						continue;
+					int codigo = coluna(PONTOS, i);
+					if (!pontosAceitos[codigo])
+						continue;
+					le(i, codigo);
+					return true;
+				}
+				if (!proximoBloco())
+					return false;
+			}
+		}
+
+		// percorre o arquivo todo sem ler as linhas
+		void percorre() throws IOException {
+			agente = -2;
+			while (proximoBloco()) {
+				linhas = 0;
+			}
+		}
+
+		// posiciona no proximo bloco que pode ter linhas para os filtros
+		private boolean proximoBloco() throws IOException {
+			linhas = 0;
+			linha = 0;
+			while (posicao + 5 <= leitor.tamanho) {
+				ByteBuffer b = leitor.mapa(posicao, 5);
+				int p = leitor.posicao(posicao);
+				byte tipo = b.get(p);
+				if (tipo == REGISTRO_AGENTE) {
+					if (posicao + 7 > leitor.tamanho)
+						return false;
+					b = leitor.mapa(posicao, 7);
+					p = leitor.posicao(posicao);
+					int id = b.getInt(p + 1);
+					int n = b.getShort(p + 5);
+					if (posicao + 7 + n > leitor.tamanho)
+						return false;
+					b = leitor.mapa(posicao, 7 + n);
+					p = leitor.posicao(posicao);
+					byte[] nome = new byte[n];
+					b.get(p + 7, nome);
+					String s = new String(nome, StandardCharsets.UTF_8);
+					leitor.registraAgente(id, s);
+					if (agente == -2 && s.equals(nomeAgente))
+						agente = id;
+					posicao += 7 + n;
+					fimValido = posicao;
+					continue;
+				}
+				if (tipo != REGISTRO_BLOCO)
+					throw new IOException("Registro invalido na posicao " + posicao);
+				int tamanho = b.getInt(p + 1);
+				if (posicao + 5 + tamanho > leitor.tamanho)
+					return false;
+				b = leitor.mapa(posicao, 5 + tamanho);
+				p = leitor.posicao(posicao) + 5;
+				posicao += 5 + tamanho;
+				fimValido = posicao;
+				ultimaMao = b.getLong(p + 12);
+				// indice do bloco
+				int blocoPontosMin = b.getInt(p + 20);
+				int blocoPontosMax = b.getInt(p + 24);
+				long blocoAgentes = b.getLong(p + 28);
+				int blocoCategorias = b.getInt(p + 36);
+				if (agente == -2 || (agente >= 0 && (blocoAgentes & (1L << (agente & 63))) == 0)
+						|| (blocoCategorias & categorias) == 0 || blocoPontosMax < pontosMin
+						|| blocoPontosMin > pontosMax) {
+					blocosPulados++;
+					continue;
+				}
+				blocosLidos++;
+				bloco = b;
+				linhas = b.getInt(p);
+				mao = b.getLong(p + 4);
+				p += 40;
+				for (int c = 0; c < COLUNAS; c++) {
+					if (c == PONTOS) {
+						int distintos = b.getInt(p);
+						p += 4;
+						int dadosDicionario = p + 9;
+						int minimo = b.getInt(p);
+						int largura = b.get(p + 4);
+						p = dadosDicionario + b.getInt(p + 5);
+						if (dicionario.length < distintos) {
+							dicionario = new int[distintos];
+							pontosAceitos = new boolean[distintos];
+						}
+						for (int i = 0; i < distintos; i++) {
+							int v = extrai(b, dadosDicionario, i, largura, minimo);
+							dicionario[i] = v;
+							pontosAceitos[i] = v >= pontosMin && v <= pontosMax
+									&& (categorias & (1 << Avaliacao.categoria(v))) != 0;
+						}
+					}
+					minimos[c] = b.getInt(p);
+					bits[c] = b.get(p + 4);
+					dados[c] = p + 9;
+					p = dados[c] + b.getInt(p + 5);
+				}
+				return true;
+			}
+			return false;
+		}
+
+		private static int extrai(ByteBuffer b, int dados, int i, int largura, int minimo) {
+			long bit = (long) i * largura;
+			long palavra = b.getLong(dados + (int) (bit >>> 3));
+			return (int) ((palavra >>> (bit & 7)) & ((1L << largura) - 1)) + minimo;
+		}
+
+		private int coluna(int c, int i) {
+			return extrai(bloco, dados[c], i, bits[c], minimos[c]);
+		}
+
+		private void le(int i, int codigoPontos) {
+			assento = coluna(ASSENTO, i);
+			idAgente = coluna(AGENTE, i);
+			pontos = dicionario[codigoPontos];
+			categoria = Avaliacao.categoria(pontos);
+			aposta = coluna(APOSTA, i);
+			apostaMaisAlta = coluna(APOSTA_MAIS_ALTA, i);
+			pagouPraVer = coluna(PAGOU, i) == 1;
+			lucro = coluna(LUCRO, i);
+		}
+
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args[0].equals("grava")) {
+			Simulador simulador = new Simulador(args[2].split(","), Integer.parseInt(args[4]));
+			long inicio = System.currentTimeMillis();
+			try (Escritor escritor = new Escritor(Path.of(args[1]))) {
+				simulador.arquivo = escritor;
+				simulador.simula(0, Long.parseLong(args[3]));
+			}
+			System.out.println(Files.size(Path.of(args[1])) + " bytes, " + (System.currentTimeMillis() - inicio)
+					+ " ms");
+			return;
+		}
+		try (Leitor leitor = new Leitor(Path.of(args[0]))) {
+			Cursor c = leitor.consulta();
+			if (args.length > 1)
+				c.agente(args[1]);
+			if (args.length > 2)
+				c.categorias(Integer.parseInt(args[2]));
+			if (args.length > 3)
+				c.pagou(args[3].equals("1"));
+			long inicio = System.nanoTime();
+			long linhas = 0, lucro = 0;
+			while (c.proxima()) {
+				if (linhas < 10)
+					System.out.println("mao " + c.mao + "\t" + leitor.nomeAgente(c.idAgente) + "\t"
+							+ Avaliacao.descricao(c.pontos) + "\taposta " + c.aposta + "\tlucro " + c.lucro);
+				linhas++;
+				lucro += c.lucro;
+			}
+			long nanos = System.nanoTime() - inicio;
+			System.out.printf("%d linhas, lucro %d, %d blocos lidos, %d pulados, %d ms, %.0f MB/s%n", linhas, lucro,
+					c.blocosLidos, c.blocosPulados, nanos / 1000000, leitor.tamanho * 1e3 / nanos);
+		}
+	}
+
+}
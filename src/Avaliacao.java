@@ -7,6 +7,9 @@ public class Avaliacao {
 
 	static final DecimalFormat df = new DecimalFormat("##,##,#0");
 
+	static final int pontosJogo = 10000;
+	static final int pontosCartaJogo = 100;
+
 	public Avaliacao() {
 	}
 
@@ -19,7 +22,8 @@ public class Avaliacao {
 	 * Pontos = ParteA + ParteB + ParteC.
 	 * 
 	 * ParteA = 225 * mo (par = 1, dois pares = 2, trinca = 3, sequencia = 4, flush
-	 * = 5, full house= 6, quadra = 7, straight flush = 8)
+	 * = 5, full house= 6, quadra = 7, straight flush = 8, quina = 9, s com mais
+	 * de um baralho)
 	 * 
 	 * ParteB = 15 * + carta mais alta do tipo de jogo (par, dois pares, ...)
 	 * 
@@ -29,55 +33,108 @@ public class Avaliacao {
 	 * @return
 	 */
 	public static Avaliacao avaliaJogo(Carta[] jogo) {
+		Avaliacao resp = new Avaliacao();
+		resp.pontos = pontos(jogo);
+		resp.descricao = descricao(resp.pontos);
+		return resp;
+
+	}
+
+	/**
+	 * Mesmos pontos de avaliaJogo, sem montar a descrio e sem alocar memria
+	 * 
+	 * @param jogo
+	 * @return
+	 */
+	public static int pontos(Carta[] jogo) {
 		int cartaMaisAlta = cartaMaisAlta(jogo);
 		int respPontos = cartaMaisAlta; // ParteC + ParteD
-		String respDescricao = "-";
 
-		int pontosJogo = 10000;
-		int pontosCartaJogo = 100;
+		// cinco do mesmo valor, s com mais de um baralho
+		if (jogo[0].valor == jogo[4].valor && jogo[1].valor == jogo[4].valor && jogo[2].valor == jogo[4].valor
+				&& jogo[3].valor == jogo[4].valor)
+			return respPontos + pontosJogo * 9 + pontosCartaJogo * cartaMaisAlta;
 
 		int naipe = mesmoNaipe(jogo);
 		int sequencia = sequencia(jogo);
+
+		if ((naipe > 0) && (sequencia > 0))
+			return respPontos + pontosJogo * 8 + pontosCartaJogo * sequencia;
 		int quadra = quadra(jogo);
+		if (quadra > 0)
+			return respPontos + pontosJogo * 7 + pontosCartaJogo * quadra;
 		int full = fullHouse(jogo);
+		if (full > 0)
+			return respPontos + pontosJogo * 6 + pontosCartaJogo * full;
+		if (naipe > 0)
+			return respPontos + pontosJogo * 5 + pontosCartaJogo * naipe;
+		if (sequencia > 0)
+			return respPontos + pontosJogo * 4 + pontosCartaJogo * sequencia;
 		int trinca = trinca(jogo);
+		if (trinca > 0)
+			return respPontos + pontosJogo * 3 + pontosCartaJogo * trinca;
 		int doisPares = doisPares(jogo);
+		if (doisPares > 0)
+			return respPontos + pontosJogo * 2 + pontosCartaJogo * doisPares;
 		int par = par(jogo);
+		if (par > 0)
+			return respPontos + pontosJogo * 1 + pontosCartaJogo * par;
+		return respPontos;
+	}
+
+	/**
+	 * Retorna a categoria do jogo (0 = nada, 1 = par, ..., 8 = sequncia de naipe, 9
+	 * = quina)
+	 * 
+	 * @param pontos
+	 * @return
+	 */
+	public static int categoria(int pontos) {
+		return pontos / pontosJogo;
+	}
 
-		if ((naipe > 0) && (sequencia > 0)) {
-			respPontos += pontosJogo * 8 + pontosCartaJogo * sequencia;
+	/**
+	 * Monta a descrio do jogo a partir dos pontos, s quando for mostrada
+	 * 
+	 * @param pontos
+	 * @return
+	 */
+	public static String descricao(int pontos) {
+		int cartaJogo = (pontos / pontosCartaJogo) % pontosCartaJogo;
+		int cartaMaisAlta = pontos % pontosCartaJogo;
+		String respDescricao;
+		switch (categoria(pontos)) {
+		case 9:
+			respDescricao = "Quina de " + cartaJogo;
+			break;
+		case 8:
 			respDescricao = "Seqncia de Naipe";
-		} else if (quadra > 0) {
-			respPontos += pontosJogo * 7 + pontosCartaJogo * quadra;
-			respDescricao = "Quadra de " + quadra;
-		} else if (full > 0) {
-			respPontos += pontosJogo * 6 + pontosCartaJogo * full;
-			respDescricao = "Dupla e Trinca com " + full;
-		} else if (naipe > 0) {
-			respPontos += pontosJogo * 5 + pontosCartaJogo * naipe;
+			break;
+		case 7:
+			respDescricao = "Quadra de " + cartaJogo;
+			break;
+		case 6:
+			respDescricao = "Dupla e Trinca com " + cartaJogo;
+			break;
+		case 5:
 			respDescricao = "Mesmo Naipe";
-		} else if (sequencia > 0) {
-			respPontos += pontosJogo * 4 + pontosCartaJogo * sequencia;
+			break;
+		case 4:
 			respDescricao = "Seqncia";
-		} else if (trinca > 0) {
-			respPontos += pontosJogo * 3 + pontosCartaJogo * trinca;
-			respDescricao = "Trinca de " + trinca;
-		} else if (doisPares > 0) {
-			respPontos += pontosJogo * 2 + pontosCartaJogo * doisPares;
-			respDescricao = "Dois pares com " + doisPares;
-		} else if (par > 0) {
-			respPontos += pontosJogo * 1 + pontosCartaJogo * par;
-			respDescricao = "Par de " + par;
-		} else
+			break;
+		case 3:
+			respDescricao = "Trinca de " + cartaJogo;
+			break;
+		case 2:
+			respDescricao = "Dois pares com " + cartaJogo;
+			break;
+		case 1:
+			respDescricao = "Par de " + cartaJogo;
+			break;
+		default:
 			respDescricao = "nada";
-
-		respDescricao += ", carta mais alta " + cartaMaisAlta;
-
-		Avaliacao resp = new Avaliacao();
-		resp.descricao = respDescricao;
-		resp.pontos = respPontos;
-		return resp;
-
+		}
+		return respDescricao + ", carta mais alta " + cartaMaisAlta;
 	}
 
 	/**
@@ -88,20 +145,15 @@ public class Avaliacao {
 	 */
 	private static int par(Carta[] jogo) {
 		int resp = -1;
-		// copias os valores para v
-		int[] v = new int[jogo.length];
-		for (int i = 0; i < v.length; i++) {
-			v[i] = jogo[i].valor;
-		}
 		// compara os pares
-		if (v[0] == v[1]) {
-			resp = v[0];
-		} else if (v[1] == v[2]) {
-			resp = v[1];
-		} else if (v[2] == v[3]) {
-			resp = v[2];
-		} else if (v[3] == v[4]) {
-			resp = v[4];
+		if (jogo[0].valor == jogo[1].valor) {
+			resp = jogo[0].valor;
+		} else if (jogo[1].valor == jogo[2].valor) {
+			resp = jogo[1].valor;
+		} else if (jogo[2].valor == jogo[3].valor) {
+			resp = jogo[2].valor;
+		} else if (jogo[3].valor == jogo[4].valor) {
+			resp = jogo[4].valor;
 		}
 		return resp;
 	}
@@ -115,18 +167,14 @@ public class Avaliacao {
 	 */
 	private static int doisPares(Carta[] jogo) {
 		int resp = -1;
-		// copias os valores para v
-		int[] v = new int[jogo.length];
-		for (int i = 0; i < v.length; i++) {
-			v[i] = jogo[i].valor;
-		}
+		int v0 = jogo[0].valor, v1 = jogo[1].valor, v2 = jogo[2].valor, v3 = jogo[3].valor, v4 = jogo[4].valor;
 		// compara os pares
-		if ((v[0] == v[1]) & (v[2] == v[3])) {
-			resp = Math.max(v[0], v[3]);
-		} else if ((v[0] == v[1]) & (v[3] == v[4])) {
-			resp = Math.max(v[0], v[3]);
-		} else if ((v[1] == v[2]) & (v[3] == v[4])) {
-			resp = Math.max(v[1], v[3]);
+		if ((v0 == v1) & (v2 == v3)) {
+			resp = Math.max(v0, v3);
+		} else if ((v0 == v1) & (v3 == v4)) {
+			resp = Math.max(v0, v3);
+		} else if ((v1 == v2) & (v3 == v4)) {
+			resp = Math.max(v1, v3);
 		}
 		return resp;
 	}
@@ -139,12 +187,10 @@ public class Avaliacao {
 	 */
 	private static int trinca(Carta[] jogo) {
 		int resp = -1;
-		boolean[] trinca = new boolean[3];
-		for (int i = 0; i < trinca.length; i++) {
-			trinca[i] = (jogo[i].valor == jogo[i + 1].valor) & (jogo[i].valor == jogo[i + 2].valor);
-			if (trinca[i]) {
+		for (int i = 0; i < 3; i++) {
+			if ((jogo[i].valor == jogo[i + 1].valor) & (jogo[i].valor == jogo[i + 2].valor)) {
 				resp = jogo[i].valor;
-				i = trinca.length;// break
+				i = 3;// break
 			}
 		}
 		return resp;
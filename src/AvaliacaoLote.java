@@ -0,0 +1,201 @@
+import java.util.Random;
+
+/**
+ * Avalia lotes de jogos de 5 cartas com os mesmos pontos de Avaliacao.
+ * 
+ * Os jogos ficam em estrutura de arrays: cartas[j][i] e a carta j do jogo i,
+ * codificada como (valor << 2) | indice do naipe. Cada jogo e ordenado por uma
+ * rede de ordenacao e avaliado sem desvios: as condicoes de Avaliacao viram
+ * inteiros 0 ou 1 e os pontos sao o maximo entre as categorias satisfeitas
+ * (cada categoria vale mais que qualquer jogo da categoria abaixo). O lote e
+ * processado em blocos, por etapas, e cada etapa e um laco curto que so usa
+ * operacoes inteiras simples sobre o mesmo indice dos arrays (sem
+ * Math.max/min, que o JIT do Java 17 nao vetoriza), entao o compilador JIT pode
+ * executar varios jogos por instrucao SIMD. Onde nao houver SIMD o mesmo codigo
+ * roda escalar, com os mesmos pontos.
+ */
+public class AvaliacaoLote {
+
+	static final int J = Avaliacao.pontosJogo;
+	static final int C = Avaliacao.pontosCartaJogo;
+	static final int BLOCO = 512;
+	static final int TEMPORARIOS = 13;
+
+	// arrays temporarios de cada thread, pequenos para ficarem no cache L1
+	private static final ThreadLocal<int[][]> temporarios = ThreadLocal
+			.withInitial(() -> new int[TEMPORARIOS][BLOCO]);
+
+	/**
+	 * Codifica a carta para o lote
+	 * 
+	 * @param c
+	 * @return
+	 */
+	public static int codifica(Carta c) {
+		return (c.valor << 2) | Carta.naipe(c);
+	}
+
+	/**
+	 * Copia os jogos para a estrutura de arrays do lote
+	 * 
+	 * @param jogos
+	 * @param cartas cartas[5][jogos.length]
+	 */
+	public static void codifica(Carta[][] jogos, int[][] cartas) {
+		for (int i = 0; i < jogos.length; i++) {
+			for (int j = 0; j < 5; j++) {
+				cartas[j][i] = codifica(jogos[i][j]);
+			}
+		}
+	}
+
+	/**
+	 * Calcula os pontos dos n primeiros jogos do lote. As cartas de cada jogo
+	 * podem estar em qualquer ordem.
+	 * 
+	 * @param cartas cartas[j][i] = carta j do jogo i
+	 * @param pontos pontos[i] = Avaliacao.pontos do jogo i
+	 * @param n
+	 */
+	public static void pontos(int[][] cartas, int[] pontos, int n) {
+		int[][] t = temporarios.get();
+		int[] a = t[0], b = t[1], c = t[2], d = t[3], e = t[4];
+		int[] naipe = t[5], sequencia = t[6], par = t[7], pt = t[8];
+		int[] e01 = t[9], e12 = t[10], e23 = t[11], e34 = t[12];
+		for (int inicio = 0; inicio < n; inicio += BLOCO) {
+			int m = Math.min(BLOCO, n - inicio);
+			System.arraycopy(cartas[0], inicio, a, 0, m);
+			System.arraycopy(cartas[1], inicio, b, 0, m);
+			System.arraycopy(cartas[2], inicio, c, 0, m);
+			System.arraycopy(cartas[3], inicio, d, 0, m);
+			System.arraycopy(cartas[4], inicio, e, 0, m);
+
+			// rede de ordenacao de 5 elementos, do maior para o menor
+			troca(a, b, m);
+			troca(d, e, m);
+			troca(c, e, m);
+			troca(c, d, m);
+			troca(a, d, m);
+			troca(a, c, m);
+			troca(b, e, m);
+			troca(b, d, m);
+			troca(b, c, m);
+
+			// mesmo naipe, e depois so os valores
+			for (int i = 0; i < m; i++) {
+				int difNaipes = (a[i] ^ b[i]) | (a[i] ^ c[i]) | (a[i] ^ d[i]) | (a[i] ^ e[i]);
+				naipe[i] = igual(difNaipes & 3, 0);
+			}
+			for (int i = 0; i < m; i++) {
+				a[i] >>>= 2;
+				b[i] >>>= 2;
+				c[i] >>>= 2;
+				d[i] >>>= 2;
+				e[i] >>>= 2;
+			}
+
+			// valores iguais entre cartas vizinhas e sequencia
+			for (int i = 0; i < m; i++) {
+				e01[i] = igual(a[i], b[i]);
+				e12[i] = igual(b[i], c[i]);
+				e23[i] = igual(c[i], d[i]);
+				e34[i] = igual(d[i], e[i]);
+			}
+			for (int i = 0; i < m; i++) {
+				sequencia[i] = igual(a[i] - 1, b[i]) & igual(b[i] - 1, c[i]) & igual(c[i] - 1, d[i])
+						& igual(d[i] - 1, e[i]);
+			}
+
+			// os pontos sao o maximo entre as categorias satisfeitas
+			for (int i = 0; i < m; i++) {
+				int p = (naipe[i] & sequencia[i]) * (J * 8 + C * a[i]);
+				p = maior(p, naipe[i] * (J * 5 + C * a[i]));
+				p = maior(p, sequencia[i] * (J * 4 + C * a[i]));
+				pt[i] = p;
+			}
+			for (int i = 0; i < m; i++) {
+				int quadra = (e01[i] & e12[i] & e23[i]) | (e12[i] & e23[i] & e34[i]);
+				int full = e01[i] & e34[i] & (e12[i] | e23[i]);
+				int quina = e01[i] & e12[i] & e23[i] & e34[i]; // so com mais de um baralho
+				int p = maior(pt[i], quadra * (J * 7 + C * c[i]));
+				p = maior(p, quina * (J * 9 + C * a[i]));
+				pt[i] = maior(p, full * (J * 6 + C * a[i]));
+			}
+			for (int i = 0; i < m; i++) {
+				int trinca = (e01[i] & e12[i]) | (e12[i] & e23[i]) | (e23[i] & e34[i]);
+				pt[i] = maior(pt[i], trinca * (J * 3 + C * c[i]));
+			}
+			for (int i = 0; i < m; i++) {
+				int doisPares = (e01[i] & e23[i]) | (e01[i] & e34[i]) | (e12[i] & e34[i]);
+				pt[i] = maior(pt[i], doisPares * (J * 2 + C * b[i]));
+			}
+			// valor do par: o primeiro par encontrado e o mais alto
+			for (int i = 0; i < m; i++) {
+				par[i] = maior(maior(e01[i] * a[i], e12[i] * b[i]), maior(e23[i] * c[i], e34[i] * e[i]));
+			}
+			for (int i = 0; i < m; i++) {
+				int temPar = igual(par[i], 0) ^ 1;
+				pt[i] = maior(pt[i], temPar * (J + C * par[i])) + a[i];
+			}
+			System.arraycopy(pt, 0, pontos, inicio, m);
+		}
+	}
+
+	// um comparador da rede: x fica com o maior e y com o menor
+	private static void troca(int[] x, int[] y, int m) {
+		for (int i = 0; i < m; i++) {
+			int xi = x[i], yi = y[i];
+			int dif = (xi - yi) & ((xi - yi) >> 31); // xi - yi se xi < yi, 0 caso contrario
+			x[i] = xi - dif;
+			y[i] = yi + dif;
+		}
+	}
+
+	// Math.max sem desvio; o JIT nao vetoriza Math.max de inteiros
+	private static int maior(int a, int b) {
+		return a - ((a - b) & ((a - b) >> 31));
+	}
+
+	// 1 se a == b, 0 caso contrario (a e b nao negativos)
+	private static int igual(int a, int b) {
+		return ((a ^ b) - 1) >>> 31;
+	}
+
+	/**
+	 * Compara com Avaliacao e mede o lote
+	 */
+	public static void main(String[] args) {
+		int n = 1 << 20;
+		Random r = new Random(1);
+		Carta[][] jogos = new Carta[n][];
+		int[] esperado = new int[n];
+		for (int i = 0; i < n; i++) {
+			jogos[i] = new Baralho(r).get5cartas();
+			esperado[i] = Avaliacao.pontos(jogos[i]);
+		}
+		int[][] cartas = new int[5][n];
+		codifica(jogos, cartas);
+		int[] pontos = new int[n];
+
+		for (int rodada = 0; rodada < 10; rodada++) {
+			long t = System.nanoTime();
+			for (int i = 0; i < n; i++) {
+				pontos[i] = Avaliacao.pontos(jogos[i]);
+			}
+			long escalar = System.nanoTime() - t;
+			t = System.nanoTime();
+			pontos(cartas, pontos, n);
+			long lote = System.nanoTime() - t;
+			System.out.println("Avaliacao: " + n * 1000L / escalar + " M jogos/s\tlote: " + n * 1000L / lote
+					+ " M jogos/s");
+		}
+
+		int diferentes = 0;
+		for (int i = 0; i < n; i++) {
+			if (pontos[i] != esperado[i])
+				diferentes++;
+		}
+		System.out.println("Jogos com pontos diferentes: " + diferentes);
+	}
+
+}
@@ -0,0 +1,224 @@
+import java.util.HashMap;
+
+/**
+ * Avalia de 5 a 7 cartas com os mesmos pontos de Avaliacao, escolhendo o melhor
+ * jogo de 5 cartas sem testar os 21 subconjuntos.
+ * 
+ * Os valores das cartas andam em uma tabela de transicao: cada estado e um
+ * multiconjunto de valores e cada carta acrescentada e um unico acesso ao
+ * array. O estado final ja tem os pontos do melhor jogo sem naipe. Os naipes
+ * sao acumulados em mascaras de 13 bits e, se algum naipe tiver 5 cartas, uma
+ * segunda tabela da os pontos do melhor flush ou sequencia de naipe.
+ * 
+ * As tabelas sao montadas chamando Avaliacao.pontos, entao os pontos sao
+ * exatamente o maximo de Avaliacao entre os subconjuntos de 5 cartas.
+ * 
+ * Velocidade (1 nucleo): jogos de 7 cartas sorteados um a um ficam em 20-25
+ * milhoes/s, porque cada carta e um acesso dependente do anterior em uma
+ * tabela de 4 MB que nao cabe no cache. As centenas de milhoes/s so aparecem
+ * quando os jogos compartilham cartas e a parte comum e andada uma vez com
+ * avanca: enumerando os boards de duas cartas fixas, cerca de 400 milhoes/s.
+ * Sorteios de Monte Carlo continuam limitados pela latencia da memoria.
+ */
+public class AvaliacaoSete {
+
+	static final int VALORES = 13;
+	static final int MAXIMO_CARTAS = 7;
+
+	// proximo[estado * 13 + valor] = estado com a carta acrescentada
+	static final int[] proximo;
+	// pontos do melhor jogo sem naipe de cada estado com 5 cartas ou mais
+	static final int[] pontosEstado;
+	// pontos do melhor jogo do mesmo naipe para cada mascara de valores
+	static final int[] pontosNaipe = new int[1 << VALORES];
+
+	// valor, bit na mascara e incremento na contagem de naipes de cada codigo
+	static final int[] valorCodigo = new int[52];
+	static final long[] mascaraCodigo = new long[52];
+	static final long[] contagemCodigo = new long[52];
+	// somado a contagem, liga o bit 3 dos naipes com 5 cartas ou mais
+	static final long CINCO_DO_NAIPE = 0x3333L;
+	static final long BIT_FLUSH = 0x8888L;
+
+	static {
+		for (int codigo = 0; codigo < 52; codigo++) {
+			valorCodigo[codigo] = codigo % VALORES;
+			mascaraCodigo[codigo] = 1L << ((codigo / VALORES) * 16 + codigo % VALORES);
+			contagemCodigo[codigo] = 1L << ((codigo / VALORES) * 4);
+		}
+
+		// numera todos os multiconjuntos de ate 7 valores, em largura
+		HashMap<Long, Integer> indices = new HashMap<>();
+		int total = 0;
+		for (int k = 0; k <= MAXIMO_CARTAS; k++) {
+			total += combinacoesComRepeticao(VALORES, k);
+		}
+		int[][] contagens = new int[total][];
+		contagens[0] = new int[VALORES];
+		indices.put(0L, 0);
+		int n = 1;
+		proximo = new int[total * VALORES];
+		for (int estado = 0; estado < n; estado++) {
+			int[] c = contagens[estado];
+			if (soma(c) == MAXIMO_CARTAS)
+				continue;
+			for (int v = 0; v < VALORES; v++) {
+				c[v]++;
+				long chave = chave(c);
+				Integer destino = indices.get(chave);
+				if (destino == null) {
+					destino = n;
+					contagens[n++] = c.clone();
+					indices.put(chave, destino);
+				}
+				c[v]--;
+				proximo[estado * VALORES + v] = destino;
+			}
+		}
+
+		pontosEstado = new int[total];
+		Carta[] jogo = new Carta[5];
+		for (int estado = 0; estado < total; estado++) {
+			int[] c = contagens[estado];
+			if (soma(c) >= 5)
+				pontosEstado[estado] = melhorSemNaipe(c, jogo);
+		}
+
+		for (int mascara = 0; mascara < pontosNaipe.length; mascara++) {
+			pontosNaipe[mascara] = melhorDoNaipe(mascara, jogo);
+		}
+	}
+
+	/**
+	 * Pontos das cartas codificadas por Carta.codigo
+	 * 
+	 * @param cartas
+	 * @param n      quantidade de cartas, de 5 a 7
+	 * @return
+	 */
+	public static int pontos(int[] cartas, int n) {
+		int estado = 0;
+		long mascaras = 0; // 16 bits por naipe
+		long contagens = 0; // 4 bits por naipe
+		for (int i = 0; i < n; i++) {
+			int codigo = cartas[i];
+			estado = proximo[estado * VALORES + valorCodigo[codigo]];
+			mascaras |= mascaraCodigo[codigo];
+			contagens += contagemCodigo[codigo];
+		}
+		return pontos(estado, mascaras, contagens);
+	}
+
+	public static int pontos(Carta[] jogo) {
+		int estado = 0;
+		long mascaras = 0;
+		long contagens = 0;
+		for (int i = 0; i < jogo.length; i++) {
+			int codigo = Carta.codigo(jogo[i]);
+			estado = proximo[estado * VALORES + valorCodigo[codigo]];
+			mascaras |= mascaraCodigo[codigo];
+			contagens += contagemCodigo[codigo];
+		}
+		return pontos(estado, mascaras, contagens);
+	}
+
+	/**
+	 * Estado dos valores com mais uma carta. Jogos que compartilham cartas (o
+	 * board do Hold'em, os primeiros niveis de uma enumeracao) andam a parte comum
+	 * uma vez so e terminam com pontos(estado, mascaras, contagens), somando
+	 * mascaraCodigo e contagemCodigo de cada carta.
+	 * 
+	 * @param estado 0 sem cartas
+	 * @param codigo codigo de Carta.codigo
+	 * @return
+	 */
+	static int avanca(int estado, int codigo) {
+		return proximo[estado * VALORES + valorCodigo[codigo]];
+	}
+
+	static int pontos(int estado, long mascaras, long contagens) {
+		int resp = pontosEstado[estado];
+		long flush = (contagens + CINCO_DO_NAIPE) & BIT_FLUSH;
+		if (flush != 0) {
+			int naipe = Long.numberOfTrailingZeros(flush) / 4;
+			resp = Math.max(resp, pontosNaipe[(int) (mascaras >>> (naipe * 16)) & 0x1fff]);
+		}
+		return resp;
+	}
+
+	/**
+	 * Melhor jogo de 5 cartas do multiconjunto, com naipes que nunca formam flush
+	 */
+	private static int melhorSemNaipe(int[] contagens, Carta[] jogo) {
+		// valores em ordem decrescente
+		int[] valores = new int[soma(contagens)];
+		int w = 0;
+		for (int v = VALORES - 1; v >= 0; v--) {
+			for (int k = 0; k < contagens[v]; k++) {
+				valores[w++] = v + 2;
+			}
+		}
+		return melhorSubconjunto(valores, jogo, false);
+	}
+
+	/**
+	 * Melhor jogo de 5 cartas do mesmo naipe com os valores da mascara
+	 */
+	private static int melhorDoNaipe(int mascara, Carta[] jogo) {
+		int[] valores = new int[Integer.bitCount(mascara)];
+		int w = 0;
+		for (int v = VALORES - 1; v >= 0; v--) {
+			if ((mascara & (1 << v)) != 0)
+				valores[w++] = v + 2;
+		}
+		if (valores.length >= 5)
+			return melhorSubconjunto(valores, jogo, true);
+		// com mais de um baralho o naipe pode ter 5 cartas com valores repetidos
+		if (valores.length > 0)
+			return valores[0] + Avaliacao.pontosJogo * 5 + Avaliacao.pontosCartaJogo * valores[0];
+		return 0;
+	}
+
+	private static int melhorSubconjunto(int[] valores, Carta[] jogo, boolean mesmoNaipe) {
+		int melhor = 0;
+		int n = valores.length;
+		for (int a = 0; a < n; a++)
+			for (int b = a + 1; b < n; b++)
+				for (int c = b + 1; c < n; c++)
+					for (int d = c + 1; d < n; d++)
+						for (int e = d + 1; e < n; e++) {
+							jogo[0] = new Carta(valores[a], mesmoNaipe ? 'O' : 'E');
+							jogo[1] = new Carta(valores[b], 'O');
+							jogo[2] = new Carta(valores[c], 'O');
+							jogo[3] = new Carta(valores[d], 'O');
+							jogo[4] = new Carta(valores[e], 'O');
+							melhor = Math.max(melhor, Avaliacao.pontos(jogo));
+						}
+		return melhor;
+	}
+
+	private static long chave(int[] contagens) {
+		long chave = 0;
+		for (int v = 0; v < VALORES; v++) {
+			chave = chave * (MAXIMO_CARTAS + 1) + contagens[v];
+		}
+		return chave;
+	}
+
+	private static int soma(int[] contagens) {
+		int s = 0;
+		for (int v = 0; v < contagens.length; v++) {
+			s += contagens[v];
+		}
+		return s;
+	}
+
+	private static int combinacoesComRepeticao(int n, int k) {
+		long resp = 1;
+		for (int i = 1; i <= k; i++) {
+			resp = resp * (n + i - 1) / i;
+		}
+		return (int) resp;
+	}
+
+}
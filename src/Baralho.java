@@ -1,22 +1,111 @@
+import java.util.Random;
+
 public class Baralho {
 
+	private Carta[] ordenado;
 	private Carta[] baralho;
 	private int posicao;
+	private Random gerador;
+	// cartas trocadas nesta mao, para quando o baralho acabar
+	private final Carta[] descartes;
+	private int quantidadeDescartes;
+	private final Carta[] trocadas = new Carta[5];
 
 	public Baralho() {
-		baralho = Carta.getBaralho();
+		this(new Random());
+	}
+
+	public Baralho(Random r) {
+		this(r, 1);
+	}
+
+	/**
+	 * Sapato com varios baralhos juntos, para mesas com mais de 10 jogadores. As
+	 * cartas se repetem, uma vez por baralho.
+	 * 
+	 * @param r
+	 * @param baralhos
+	 */
+	public Baralho(Random r, int baralhos) {
+		ordenado = new Carta[52 * baralhos];
+		for (int b = 0; b < baralhos; b++) {
+			System.arraycopy(Carta.getBaralhoOrdenado(), 0, ordenado, 52 * b, 52);
+		}
+		baralho = ordenado.clone();
+		descartes = new Carta[ordenado.length];
+		embaralha(r);
+	}
+
+	// volta as mesmas cartas para o baralho e embaralha de novo
+	public void embaralha(Random r) {
+		System.arraycopy(ordenado, 0, baralho, 0, baralho.length);
+		Carta.embaralha(baralho, r);
 		posicao = 0;
+		gerador = r;
+		quantidadeDescartes = 0;
+	}
 
+	// puxa uma carta do baralho
+	public Carta getCarta() {
+		return baralho[posicao++];
 	}
 
 	// puxa 5 cartas do baralho
 	public Carta[] get5cartas() {
-		Carta[] jogo = new Carta[5];
+		return get5cartas(new Carta[5]);
+	}
+
+	// puxa 5 cartas do baralho para o array informado
+	public Carta[] get5cartas(Carta[] jogo) {
 		for (int i = 0; i < jogo.length; i++) {
 			jogo[i] = baralho[posicao];
 			posicao++;
 		}
-		// ordena da maior para menor
+		ordena(jogo);
+		return jogo;
+	}
+
+	/**
+	 * Troca as cartas marcadas (bit i = jogo[i]) por cartas do baralho. Se o
+	 * baralho acabar, as cartas ja descartadas na mao sao embaralhadas e voltam.
+	 * 
+	 * @param jogo     jogo ordenado, que continua ordenado
+	 * @param descarte cartas a trocar
+	 */
+	public void troca(Carta[] jogo, int descarte) {
+		int n = 0;
+		for (int i = 0; i < jogo.length; i++) {
+			if ((descarte & (1 << i)) == 0)
+				continue;
+			if (posicao == baralho.length)
+				reaproveitaDescartes();
+			trocadas[n++] = jogo[i];
+			jogo[i] = baralho[posicao++];
+		}
+		// so depois de comprar, para ninguem receber de volta o que acabou de descartar
+		for (int i = 0; i < n; i++) {
+			descartes[quantidadeDescartes++] = trocadas[i];
+		}
+		ordena(jogo);
+	}
+
+	private void reaproveitaDescartes() {
+		if (quantidadeDescartes == 0)
+			throw new IllegalStateException("Baralho sem cartas para a troca");
+		posicao = baralho.length - quantidadeDescartes;
+		System.arraycopy(descartes, 0, baralho, posicao, quantidadeDescartes);
+		quantidadeDescartes = 0;
+		// embaralha so a parte reaproveitada
+		for (int i = baralho.length - 1; i > posicao; i--) {
+			int j = posicao + gerador.nextInt(i - posicao + 1);
+			Carta temp = baralho[i];
+			baralho[i] = baralho[j];
+			baralho[j] = temp;
+		}
+	}
+
+	// ordena da maior para menor
+	private static void ordena(Carta[] jogo) {
 		Carta temp;
 		for (int i = 0; i < jogo.length; i++) {
 			for (int j = i + 1; j < jogo.length; j++) {
@@ -27,9 +116,6 @@ public class Baralho {
 				}
 			}
 		}
-		return jogo;
 	}
 
-	
-
 }
@@ -20,6 +20,28 @@ public class Carta {
 	 * @return
 	 */
 	public static Carta[] getBaralho() {
+		return getBaralho(new Random());
+	}
+
+	/**
+	 * Retorna um baralho embaralhado com o gerador informado
+	 * 
+	 * @param r
+	 * @return
+	 */
+	public static Carta[] getBaralho(Random r) {
+		Carta[] baralho = getBaralhoOrdenado();
+		embaralha(baralho, r);
+		return baralho;
+
+	}
+
+	/**
+	 * Retorna um baralho na ordem dos naipes e valores
+	 * 
+	 * @return
+	 */
+	public static Carta[] getBaralhoOrdenado() {
 		Carta[] baralho = new Carta[52];
 
 		// construindo o baralho
@@ -30,19 +52,24 @@ public class Carta {
 				w++;
 			}
 		}
+		return baralho;
+	}
 
-		// embaralhando
-		Random r = new Random();
+	/**
+	 * Embaralha o array no lugar
+	 * 
+	 * @param baralho
+	 * @param r
+	 */
+	public static void embaralha(Carta[] baralho, Random r) {
 		Carta temp;
+		int w;
 		for (int i = 0; i < baralho.length; i++) {
 			temp = baralho[i];
 			w = r.nextInt(baralho.length);
 			baralho[i] = baralho[w];
 			baralho[w] = temp;
 		}
-
-		return baralho;
-
 	}
 
 	// faz uma cpia do jogo para encaminhar para o agente
@@ -54,6 +81,45 @@ public class Carta {
 		return resp;
 	}
 
+	// copia o jogo para cartas j existentes, sem alocar
+	public static void copia(Carta[] jogo, Carta[] destino) {
+		for (int i = 0; i < jogo.length; i++) {
+			destino[i].valor = jogo[i].valor;
+			destino[i].naipe = jogo[i].naipe;
+		}
+	}
+
+	// ndice de cada naipe em naipes, pelo prprio caractere
+	private static final int[] indiceNaipe = new int[128];
+
+	static {
+		for (int i = 0; i < naipes.length; i++) {
+			indiceNaipe[naipes[i]] = i;
+		}
+	}
+
+	/**
+	 * Codifica a carta como inteiro de 0 a 51: (valor - 2) + 13 * ndice do naipe.
+	 * O ndice vem de uma tabela e no de uma busca em naipes; no fica guardado
+	 * na carta porque Mesa e MesaHoldem reescrevem valor e naipe no lugar.
+	 * 
+	 * @param c
+	 * @return
+	 */
+	public static int codigo(Carta c) {
+		return (c.valor - 2) + 13 * naipe(c);
+	}
+
+	/**
+	 * ndice do naipe da carta em naipes
+	 * 
+	 * @param c
+	 * @return
+	 */
+	public static int naipe(Carta c) {
+		return indiceNaipe[c.naipe];
+	}
+
 	public static String printCartas(Carta[] jogo) {
 		String a = "";
 		for (int i = 0; i < jogo.length; i++) {
@@ -0,0 +1,200 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Foto do estado do jogo: semente do baralho, numero de maos, tempo jogado e o
+ * saldo de cada Controlador. Como o baralho de cada mao e gerado a partir da
+ * semente e do numero da mao, isso basta para continuar o jogo com as mesmas
+ * cartas.
+ */
+public class Checkpoint {
+
+	static final int MAGICO = 0x504b4350; // "PKCP"
+	static final int VERSAO = 1;
+
+	long semente;
+	long mao;
+	long tempoDeJogo; // em milissegundos
+	String[] nomes;
+	int[] saldos;
+
+	/**
+	 * Copia o estado atual dos jogadores
+	 * 
+	 * @param semente
+	 * @param mao
+	 * @param tempoDeJogo
+	 * @param jogadores
+	 * @return
+	 */
+	public static Checkpoint de(long semente, long mao, long tempoDeJogo, Controlador[] jogadores) {
+		Checkpoint c = new Checkpoint();
+		c.semente = semente;
+		c.mao = mao;
+		c.tempoDeJogo = tempoDeJogo;
+		c.nomes = new String[jogadores.length];
+		c.saldos = new int[jogadores.length];
+		for (int i = 0; i < jogadores.length; i++) {
+			c.nomes[i] = jogadores[i].getName();
+			c.saldos[i] = jogadores[i].saldo;
+		}
+		return c;
+	}
+
+	/**
+	 * Devolve os saldos aos jogadores, conferindo se a mesa e a mesma
+	 * 
+	 * @param jogadores
+	 */
+	public void restaura(Controlador[] jogadores) {
+		if (jogadores.length != saldos.length)
+			throw new IllegalStateException(
+					"Checkpoint com " + saldos.length + " jogadores, mesa com " + jogadores.length);
+		for (int i = 0; i < jogadores.length; i++) {
+			if (!jogadores[i].getName().equals(nomes[i]))
+				throw new IllegalStateException(
+						"Checkpoint do jogador " + nomes[i] + " no assento de " + jogadores[i].getName());
+			jogadores[i].saldo = saldos[i];
+		}
+	}
+
+	/**
+	 * Grava em um arquivo temporario e troca pelo definitivo, para nunca deixar um
+	 * checkpoint pela metade
+	 * 
+	 * @param arquivo
+	 * @throws IOException
+	 */
+	public void grava(Path arquivo) throws IOException {
+		Path temp = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+			out.writeInt(MAGICO);
+			out.writeInt(VERSAO);
+			out.writeLong(semente);
+			out.writeLong(mao);
+			out.writeLong(tempoDeJogo);
+			out.writeInt(saldos.length);
+			for (int i = 0; i < saldos.length; i++) {
+				out.writeUTF(nomes[i]);
+				out.writeInt(saldos[i]);
+			}
+		}
+		Files.move(temp, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public static Checkpoint le(Path arquivo) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo)))) {
+			if (in.readInt() != MAGICO || in.readInt() != VERSAO)
+				throw new IOException(arquivo + " nao e um checkpoint valido");
+			Checkpoint c = new Checkpoint();
+			c.semente = in.readLong();
+			c.mao = in.readLong();
+			c.tempoDeJogo = in.readLong();
+			int n = in.readInt();
+			c.nomes = new String[n];
+			c.saldos = new int[n];
+			for (int i = 0; i < n; i++) {
+				c.nomes[i] = in.readUTF();
+				c.saldos[i] = in.readInt();
+			}
+			return c;
+		}
+	}
+
+	/**
+	 * Grava os checkpoints em segundo plano para o jogo nao parar. Se chegar um
+	 * novo antes do anterior ser gravado, so o mais recente e gravado. Todos os
+	 * checkpoints do arquivo passam por esta thread, inclusive o ultimo
+	 * (encerra), entao duas gravacoes nunca disputam o mesmo temporario.
+	 */
+	public static class Gravador extends Thread {
+
+		private final Path arquivo;
+		private final Path arquivoRatings; // opcional
+		private final AtomicReference<Pendente> pendente = new AtomicReference<>();
+		private volatile boolean encerrado;
+
+		// checkpoint e ratings da mesma mao
+		private static class Pendente {
+			final Checkpoint checkpoint;
+			final RatingElo.Foto ratings;
+
+			Pendente(Checkpoint checkpoint, RatingElo.Foto ratings) {
+				this.checkpoint = checkpoint;
+				this.ratings = ratings;
+			}
+		}
+
+		public Gravador(Path arquivo) {
+			this(arquivo, null);
+		}
+
+		/**
+		 * @param arquivo
+		 * @param arquivoRatings onde gravar as fotos do RatingElo agendadas junto
+		 */
+		public Gravador(Path arquivo, Path arquivoRatings) {
+			super("Checkpoint");
+			setDaemon(true);
+			this.arquivo = arquivo;
+			this.arquivoRatings = arquivoRatings;
+		}
+
+		public void agenda(Checkpoint checkpoint) {
+			agenda(checkpoint, null);
+		}
+
+		public void agenda(Checkpoint checkpoint, RatingElo.Foto ratings) {
+			pendente.set(new Pendente(checkpoint, ratings));
+			LockSupport.unpark(this);
+		}
+
+		/**
+		 * Agenda o ultimo checkpoint (e ratings) e espera ser gravado
+		 * 
+		 * @param ultimo
+		 * @param ratings ou null
+		 * @throws InterruptedException
+		 */
+		public void encerra(Checkpoint ultimo, RatingElo.Foto ratings) throws InterruptedException {
+			pendente.set(new Pendente(ultimo, ratings));
+			encerrado = true;
+			LockSupport.unpark(this);
+			join();
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Pendente p = pendente.getAndSet(null);
+				if (p == null) {
+					if (encerrado && pendente.get() == null)
+						return;
+					LockSupport.park(this);
+					continue;
+				}
+				try {
+					p.checkpoint.grava(arquivo);
+				} catch (IOException e) {
+					System.out.println("Checkpoint: erro ao gravar " + arquivo + ": " + e.getMessage());
+				}
+				if (p.ratings != null && arquivoRatings != null)
+					try {
+						p.ratings.grava(arquivoRatings);
+					} catch (IOException e) {
+						System.out.println("Checkpoint: erro ao gravar " + arquivoRatings + ": " + e.getMessage());
+					}
+			}
+		}
+
+	}
+
+}
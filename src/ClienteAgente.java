@@ -0,0 +1,100 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Roda um Agente em um processo separado e o conecta a um ServidorAgentes.
+ * 
+ * java ClienteAgente <porta ou caminho do socket Unix> <classe do agente>
+ * [nome] [tempo de espera do AgenteConstanteLento]
+ */
+public class ClienteAgente {
+
+	private final Agente agente;
+	private final DataInputStream entrada;
+	private final DataOutputStream saida;
+
+	public ClienteAgente(SocketChannel canal, Agente agente, String nome) throws IOException {
+		this.agente = agente;
+		entrada = new DataInputStream(new BufferedInputStream(Channels.newInputStream(canal)));
+		saida = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(canal)));
+
+		byte[] bytesNome = nome.getBytes(StandardCharsets.UTF_8);
+		int tamanhoNome = Math.min(bytesNome.length, 255);
+		saida.writeInt(5 + 2 + tamanhoNome);
+		saida.writeByte(ProtocoloAgente.OLA);
+		saida.writeInt(0);
+		saida.writeByte(ProtocoloAgente.VERSAO);
+		saida.writeByte(tamanhoNome);
+		saida.write(bytesNome, 0, tamanhoNome);
+		saida.flush();
+	}
+
+	/**
+	 * Atende os pedidos do jogo ate a conexao ser fechada
+	 * 
+	 * @throws IOException
+	 */
+	public void atende() throws IOException {
+		byte[] dados = new byte[ProtocoloAgente.MAIOR_QUADRO];
+		try {
+			while (true) {
+				int tamanho = entrada.readInt();
+				byte tipo = entrada.readByte();
+				int sequencia = entrada.readInt();
+				entrada.readFully(dados, 0, tamanho - 5);
+				ByteBuffer buf = ByteBuffer.wrap(dados, 0, tamanho - 5);
+
+				if (tipo == ProtocoloAgente.PRIMEIRA_APOSTA) {
+					int aposta = agente.getPrimeiraAposta(ProtocoloAgente.leCartas(buf));
+					saida.writeInt(5 + 4);
+					saida.writeByte(ProtocoloAgente.RESPOSTA_APOSTA);
+					saida.writeInt(sequencia);
+					saida.writeInt(aposta);
+				} else if (tipo == ProtocoloAgente.SEGUNDA_APOSTA) {
+					boolean paga = agente.getSegundaAposta(buf.getInt());
+					saida.writeInt(5 + 1);
+					saida.writeByte(ProtocoloAgente.RESPOSTA_PAGA);
+					saida.writeInt(sequencia);
+					saida.writeByte(paga ? 1 : 0);
+				}
+				saida.flush();
+			}
+		} catch (EOFException e) {
+			// o jogo fechou a conexao
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		SocketChannel canal;
+		if (args[0].matches("\\d+"))
+			canal = SocketChannel
+					.open(new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0])));
+		else {
+			canal = SocketChannel.open(StandardProtocolFamily.UNIX);
+			canal.connect(UnixDomainSocketAddress.of(args[0]));
+		}
+
+		Agente agente;
+		Class<?> classe = Class.forName(args[1]);
+		if (args.length > 3)
+			agente = (Agente) classe.getConstructor(long.class).newInstance(Long.parseLong(args[3]));
+		else
+			agente = (Agente) classe.getConstructor().newInstance();
+		String nome = args.length > 2 ? args[2] : args[1];
+
+		new ClienteAgente(canal, agente, nome).atende();
+	}
+
+}
@@ -4,15 +4,29 @@ public class Controlador extends Thread {
 	// variveis de comunicao
 	boolean primeiraAposta;
 	boolean segundaAposta;
+	boolean trocar;
 	int apostaMaisAlta;
 	Carta[] jogo;
 	int pontos;
 	int aposta;
 	boolean pagaPraVer;
+	int descarte;
+	boolean observar;
+	// copias proprias do resultado: a mesa escreve na pendente e o agente le a
+	// outra, que so volta a ser escrita depois da troca em atende()
+	private ObservacaoMao observacaoPendente;
+	private ObservacaoMao observacaoLida;
 
 	// varivies do controle
 	Agente agente;
 	int saldo;
+	int assento;
+	int mesa;
+	MetricasMesa metricas;
+	long agendadoEm; // nanoTime do ultimo pedido de aposta
+	OrcamentoDecisao orcamento; // so com threads; sem ele o agente nao tem prazo
+	private long prazo;
+	Object respostas; // avisado a cada resposta, para a mesa nao esperar a toa
 
 	public Controlador(Agente agente, int saldo, String nome) {
 		super();
@@ -24,37 +38,136 @@ public class Controlador extends Thread {
 	public synchronized void setCartas(Carta[] cartas) {
 		jogo = cartas;
 		aposta = 0;
+		agendadoEm = System.nanoTime();
 		primeiraAposta = true;
 	}
 
+	public synchronized void setTroca() {
+		descarte = 0;
+		agendadoEm = System.nanoTime();
+		trocar = true;
+	}
+
 	public synchronized void setPagaPraVer(int apostaMaisAlta) {
 		pagaPraVer = false;
 		this.apostaMaisAlta = apostaMaisAlta;
+		agendadoEm = System.nanoTime();
 		segundaAposta = true;
 	}
 
+	public synchronized void setObservacao(ObservacaoMao observacao) {
+		if (observacaoPendente == null || observacaoPendente.jogadores != observacao.jogadores) {
+			observacaoPendente = new ObservacaoMao(observacao.jogadores);
+			observacaoLida = new ObservacaoMao(observacao.jogadores);
+		}
+		observacao.copia(observacaoPendente);
+		observar = true;
+	}
+
 	@Override
 	public void run() {
 		while (true) {
 			try {
 				synchronized (this) {
-					this.wait(); // Aguarda at que algum agendamento ocorra.
+					while (!primeiraAposta && !trocar && !segundaAposta && !observar)
+						this.wait(); // Aguarda at que algum agendamento ocorra.
 				}
 			} catch (InterruptedException e) {
 //				e.printStackTrace();
 				System.out.println(this.getName() + ": Erro no Controlador");
 			}
 
-			if (primeiraAposta) {
-				aposta = agente.getPrimeiraAposta(jogo);
-				primeiraAposta = false;
+			atende();
+
+		}
+	}
+
+	/**
+	 * Executa os agendamentos pendentes. Chamado pela thread do Controlador ou,
+	 * numa Mesa sncrona, direto pela thread do jogo.
+	 */
+	void atende() {
+		if (observar) {
+			ObservacaoMao observacao;
+			synchronized (this) {
+				observacao = observacaoPendente;
+				observacaoPendente = observacaoLida;
+				observacaoLida = observacao;
+				observar = false;
 			}
-			if (segundaAposta) {
-				pagaPraVer = agente.getSegundaAposta(apostaMaisAlta);
-				segundaAposta = false;
+			agente.observaMao(observacao, assento);
+		}
+		if (primeiraAposta) {
+			EventoDecisao evento = iniciaEvento();
+			definePrazo();
+			aposta = agente.getPrimeiraAposta(jogo);
+			primeiraAposta = false;
+			registra(evento, "primeiraAposta", aposta);
+			mede();
+		}
+		if (trocar) {
+			EventoDecisao evento = iniciaEvento();
+			definePrazo();
+			descarte = agente.getDescarte(jogo);
+			trocar = false;
+			registra(evento, "descarte", descarte);
+			mede();
+		}
+		if (segundaAposta) {
+			EventoDecisao evento = iniciaEvento();
+			definePrazo();
+			pagaPraVer = agente.getSegundaAposta(apostaMaisAlta);
+			segundaAposta = false;
+			registra(evento, "segundaAposta", pagaPraVer ? 1 : 0);
+			mede();
+		}
+		if (respostas != null)
+			synchronized (respostas) {
+				respostas.notifyAll();
 			}
+	}
 
+	// algum pedido de decisao ainda sem resposta
+	boolean decidindo() {
+		return primeiraAposta || trocar || segundaAposta;
+	}
+
+	// so cria o evento se o Flight Recorder estiver gravando
+	private static EventoDecisao iniciaEvento() {
+		if (!GravacaoJfr.ativa)
+			return null;
+		EventoDecisao evento = new EventoDecisao();
+		evento.begin();
+		return evento;
+	}
+
+	private void registra(EventoDecisao evento, String decisao, int resultado) {
+		if (evento == null)
+			return;
+		evento.end();
+		if (evento.shouldCommit()) {
+			evento.mesa = mesa;
+			evento.assento = assento;
+			evento.agente = agente.getClass();
+			evento.decisao = decisao;
+			evento.resultado = resultado;
+			evento.commit();
 		}
 	}
 
+	// passa ao agente o prazo da decisao pedida em agendadoEm
+	private void definePrazo() {
+		prazo = orcamento == null ? Long.MAX_VALUE : orcamento.prazo(agendadoEm);
+		agente.setPrazo(prazo);
+	}
+
+	// tempo do pedido ate a resposta do agente, que tambem ajusta o orcamento
+	private void mede() {
+		long fim = System.nanoTime();
+		if (metricas != null)
+			metricas.decisao(assento, fim - agendadoEm);
+		if (orcamento != null)
+			orcamento.responde(agendadoEm, prazo, fim);
+	}
+
 }
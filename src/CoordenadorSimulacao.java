@@ -0,0 +1,206 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Divide uma simulacao em lotes de sementes e distribui os lotes para processos
+ * TrabalhadorSimulacao. Se um trabalhador morre ou passa do prazo, o lote dele
+ * volta para a fila; se nao sobrar nenhum trabalhador, o proprio coordenador
+ * roda o que faltar. Como cada partida so depende da sua semente e as
+ * estatisticas sao somas, o resultado nao depende de quantos trabalhadores
+ * rodaram.
+ * 
+ * java CoordenadorSimulacao <agentes separados por virgula> <partidas> <maos
+ * por partida> [trabalhadores locais] [partidas por lote] [porta] [endereco]
+ * 
+ * Com uma porta informada o coordenador aceita conexoes de outras maquinas:
+ * java TrabalhadorSimulacao <host do coordenador> <porta>. So escuta no
+ * loopback, a menos que um endereco (ex.: 0.0.0.0) seja informado. Se nenhum
+ * trabalhador aparecer por esperaPorTrabalhadoresEmMilis, o coordenador roda o
+ * que faltar sozinho.
+ */
+public class CoordenadorSimulacao {
+
+	final String[] agentes;
+	final int maosPorPartida;
+	final long partidas;
+	final int partidasPorLote;
+	long prazoDoLoteEmMilis = 10 * 60 * 1000;
+	long esperaPorTrabalhadoresEmMilis = 60 * 1000;
+	InetAddress endereco = InetAddress.getLoopbackAddress();
+
+	private final LinkedBlockingDeque<Integer> pendentes = new LinkedBlockingDeque<>();
+	private final AtomicReferenceArray<EstatisticasSimulacao> resultados;
+	private final AtomicInteger concluidos = new AtomicInteger();
+	private final AtomicInteger trabalhadoresAtivos = new AtomicInteger();
+
+	public CoordenadorSimulacao(String[] agentes, int maosPorPartida, long partidas, int partidasPorLote) {
+		this.agentes = agentes;
+		this.maosPorPartida = maosPorPartida;
+		this.partidas = partidas;
+		this.partidasPorLote = partidasPorLote;
+		int lotes = (int) ((partidas + partidasPorLote - 1) / partidasPorLote);
+		resultados = new AtomicReferenceArray<>(lotes);
+		for (int i = 0; i < lotes; i++) {
+			pendentes.add(i);
+		}
+	}
+
+	/**
+	 * Roda a simulacao com trabalhadores locais e os que se conectarem na porta
+	 * 
+	 * @param trabalhadoresLocais processos iniciados nesta maquina
+	 * @param porta               0 para so aceitar trabalhadores locais
+	 * @return
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	public EstatisticasSimulacao executa(int trabalhadoresLocais, int porta) throws IOException, InterruptedException {
+		ServerSocket servidor = new ServerSocket();
+		servidor.bind(new InetSocketAddress(porta == 0 ? InetAddress.getLoopbackAddress() : endereco, porta));
+		Thread aceita = new Thread(() -> aceita(servidor), "Coordenador");
+		aceita.setDaemon(true);
+		aceita.start();
+
+		List<Process> processos = new ArrayList<>();
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		for (int i = 0; i < trabalhadoresLocais; i++) {
+			processos.add(new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+					"TrabalhadorSimulacao", "localhost", String.valueOf(servidor.getLocalPort())).inheritIO().start());
+		}
+
+		int lotes = resultados.length();
+		// com porta, da mais tempo para trabalhadores remotos (re)conectarem
+		long espera = porta == 0 ? 1000 : esperaPorTrabalhadoresEmMilis;
+		long semTrabalhadoresDesde = System.currentTimeMillis();
+		while (concluidos.get() < lotes) {
+			Thread.sleep(100);
+			boolean algumVivo = trabalhadoresAtivos.get() > 0;
+			for (Process p : processos) {
+				algumVivo |= p.isAlive();
+			}
+			if (algumVivo)
+				semTrabalhadoresDesde = System.currentTimeMillis();
+			// ninguem para trabalhar: roda o que faltou aqui mesmo
+			else if (System.currentTimeMillis() - semTrabalhadoresDesde > espera) {
+				System.out.println("Coordenador: sem trabalhadores, rodando " + pendentes.size() + " lotes aqui");
+				roda();
+			}
+		}
+
+		servidor.close();
+		for (Process p : processos) {
+			p.waitFor(5, TimeUnit.SECONDS);
+			p.destroy();
+		}
+
+		// junta na ordem dos lotes
+		EstatisticasSimulacao total = new EstatisticasSimulacao(agentes.length);
+		for (int i = 0; i < lotes; i++) {
+			total.junta(resultados.get(i));
+		}
+		return total;
+	}
+
+	private void aceita(ServerSocket servidor) {
+		while (!servidor.isClosed()) {
+			try {
+				Socket socket = servidor.accept();
+				trabalhadoresAtivos.incrementAndGet();
+				new Thread(() -> atende(socket), "Trabalhador " + socket.getRemoteSocketAddress()).start();
+			} catch (IOException e) {
+				// servidor fechado
+			}
+		}
+	}
+
+	// envia lotes para um trabalhador ate acabarem ou ele morrer
+	private void atende(Socket socket) {
+		Integer lote = null;
+		try {
+			socket.setTcpNoDelay(true);
+			socket.setSoTimeout((int) prazoDoLoteEmMilis);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			while (concluidos.get() < resultados.length()) {
+				lote = pendentes.poll(100, TimeUnit.MILLISECONDS);
+				if (lote == null)
+					continue;
+				out.writeByte(TrabalhadorSimulacao.LOTE);
+				out.writeUTF(String.join(",", agentes));
+				out.writeInt(maosPorPartida);
+				out.writeLong(inicioDoLote(lote));
+				out.writeLong(fimDoLote(lote));
+				out.flush();
+				conclui(lote, EstatisticasSimulacao.le(in));
+				lote = null;
+			}
+			out.writeByte(TrabalhadorSimulacao.FIM);
+			out.flush();
+		} catch (IOException | InterruptedException e) {
+			System.out.println("Coordenador: trabalhador " + socket.getRemoteSocketAddress() + " perdido");
+			// devolve o lote para outro trabalhador
+			if (lote != null)
+				pendentes.addFirst(lote);
+		} finally {
+			trabalhadoresAtivos.decrementAndGet();
+			try {
+				socket.close();
+			} catch (IOException e) {
+			}
+		}
+	}
+
+	// roda os lotes pendentes neste processo
+	private void roda() {
+		Integer lote;
+		Simulador simulador = new Simulador(agentes, maosPorPartida);
+		while ((lote = pendentes.poll()) != null) {
+			conclui(lote, simulador.simula(inicioDoLote(lote), fimDoLote(lote)));
+		}
+	}
+
+	private void conclui(int lote, EstatisticasSimulacao resultado) {
+		// um lote devolvido por prazo pode acabar chegando duas vezes
+		if (resultados.compareAndSet(lote, null, resultado))
+			concluidos.incrementAndGet();
+	}
+
+	private long inicioDoLote(int lote) {
+		return (long) lote * partidasPorLote;
+	}
+
+	private long fimDoLote(int lote) {
+		return Math.min(partidas, inicioDoLote(lote) + partidasPorLote);
+	}
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		String[] agentes = args[0].split(",");
+		long partidas = Long.parseLong(args[1]);
+		int maos = Integer.parseInt(args[2]);
+		int trabalhadores = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		int partidasPorLote = args.length > 4 ? Integer.parseInt(args[4]) : 100;
+		int porta = args.length > 5 ? Integer.parseInt(args[5]) : 0;
+
+		long inicio = System.currentTimeMillis();
+		CoordenadorSimulacao coordenador = new CoordenadorSimulacao(agentes, maos, partidas, partidasPorLote);
+		if (args.length > 6)
+			coordenador.endereco = InetAddress.getByName(args[6]);
+		coordenador.executa(trabalhadores, porta).mostra(agentes);
+		System.out.println((System.currentTimeMillis() - inicio) + " ms");
+	}
+
+}
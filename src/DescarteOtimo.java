@@ -0,0 +1,299 @@
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Melhor descarte no poker com troca: entre os 32 subconjuntos das 5 cartas,
+ * o que da a maior chance media de ganhar ou empatar contra 1 oponente
+ * (TabelaEquidade, exata) depois de
+ * completar a mao com as 47 cartas restantes.
+ * 
+ * Trocando ate 3 cartas todas as compras sao enumeradas (no maximo 16215 por
+ * descarte), com as cartas da mao fora do baralho. Trocando 4 ou 5 o valor vem
+ * de tabelas calculadas uma vez sem as cartas mortas, que quase nao mudam o
+ * resultado nesses casos.
+ * 
+ * O resultado de cada mao e guardado pela forma canonica (a menor entre as 24
+ * trocas de naipe), entao maos iguais a menos de naipe sao calculadas uma vez e
+ * depois respondidas em microssegundos.
+ * 
+ * Os oponentes tambem trocam, entao a TabelaEquidade (contra maos de 5 cartas
+ * sem troca) e uma aproximacao da chance real.
+ * 
+ * As compras e a tabela supoem um baralho de 52 cartas. Com mais de 10
+ * assentos a Mesa usa um sapato (Mesa.baralhos): a mao pode ter cartas
+ * repetidas e o descarte e calculado normalmente, mas as compras continuam
+ * vindo de um baralho so (sem as outras copias, sem quinas), entao deixa de
+ * ser o otimo exato.
+ */
+public class DescarteOtimo {
+
+	private static DescarteOtimo padrao;
+
+	// as 24 permutacoes dos 4 naipes
+	private static final int[][] PERMUTACOES = new int[24][];
+	static {
+		int n = 0;
+		for (int a = 0; a < 4; a++)
+			for (int b = 0; b < 4; b++)
+				for (int c = 0; c < 4; c++)
+					for (int d = 0; d < 4; d++)
+						if (a != b && a != c && a != d && b != c && b != d && c != d)
+							PERMUTACOES[n++] = new int[] { a, b, c, d };
+	}
+
+	private final TabelaEquidade tabela;
+	private final ConcurrentHashMap<Integer, Long> memoria = new ConcurrentHashMap<>();
+	private final float[] manterUma = new float[13]; // por valor, trocando 4
+	private final float manterNenhuma; // trocando as 5
+
+	public DescarteOtimo(TabelaEquidade tabela) {
+		this.tabela = tabela;
+		int[] jogo = new int[5];
+		for (int valor = 0; valor < 13; valor++) {
+			jogo[0] = valor;
+			double soma = 0;
+			long n = 0;
+			for (int a = 0; a < 52; a++)
+				for (int b = a + 1; b < 52; b++)
+					for (int c = b + 1; c < 52; c++)
+						for (int d = c + 1; d < 52; d++) {
+							if (a == valor || b == valor || c == valor || d == valor)
+								continue;
+							jogo[1] = a;
+							jogo[2] = b;
+							jogo[3] = c;
+							jogo[4] = d;
+							soma += chance(jogo);
+							n++;
+						}
+			manterUma[valor] = (float) (soma / n);
+		}
+		// media sobre todos os jogos: a media de manter uma carta sobre as 52
+		double soma = 0;
+		for (int valor = 0; valor < 13; valor++) {
+			soma += manterUma[valor];
+		}
+		manterNenhuma = (float) (soma / 13);
+	}
+
+	/**
+	 * Solucionador com a TabelaEquidade padrao
+	 * 
+	 * @return
+	 */
+	public static synchronized DescarteOtimo padrao() {
+		if (padrao == null)
+			padrao = new DescarteOtimo(TabelaEquidade.padrao());
+		return padrao;
+	}
+
+	private float chance(int[] jogo) {
+		return tabela.probabilidade(AvaliacaoSete.pontos(jogo, 5));
+	}
+
+	/**
+	 * Retorna as cartas a descartar: o bit i ligado descarta jogo[i]
+	 * 
+	 * @param jogo 5 cartas
+	 * @return
+	 */
+	public int descarte(Carta[] jogo) {
+		int[] codigos = new int[5];
+		int[] canonica = new int[5];
+		int permutacao = canonica(jogo, codigos, canonica);
+		long r = resolve(canonica);
+		int mascaraCanonica = (int) r & 31;
+		// volta para as posicoes de jogo; num sapato a mesma carta pode vir duas
+		// vezes, entao cada posicao canonica vale para uma carta so
+		int[] p = PERMUTACOES[permutacao];
+		boolean[] usada = new boolean[5];
+		int mascara = 0;
+		for (int i = 0; i < 5; i++) {
+			int codigo = codigos[i] % 13 + 13 * p[codigos[i] / 13];
+			for (int j = 0; j < 5; j++) {
+				if (!usada[j] && canonica[j] == codigo) {
+					usada[j] = true;
+					if ((mascaraCanonica & (1 << j)) != 0)
+						mascara |= 1 << i;
+					break;
+				}
+			}
+		}
+		return mascara;
+	}
+
+	/**
+	 * Chance de ganhar ou empatar depois do melhor descarte
+	 * 
+	 * @param jogo
+	 * @return
+	 */
+	public float chance(Carta[] jogo) {
+		int[] canonica = new int[5];
+		canonica(jogo, new int[5], canonica);
+		return Float.intBitsToFloat((int) (resolve(canonica) >>> 32));
+	}
+
+	// preenche a forma canonica ordenada e retorna a permutacao de naipes usada
+	private static int canonica(Carta[] jogo, int[] codigos, int[] canonica) {
+		for (int i = 0; i < 5; i++) {
+			codigos[i] = Carta.codigo(jogo[i]);
+		}
+		int melhor = -1;
+		int melhorChave = Integer.MAX_VALUE;
+		int[] c = new int[5];
+		for (int p = 0; p < 24; p++) {
+			int[] perm = PERMUTACOES[p];
+			for (int i = 0; i < 5; i++) {
+				c[i] = codigos[i] % 13 + 13 * perm[codigos[i] / 13];
+			}
+			ordena(c);
+			int chave = chave(c);
+			if (chave < melhorChave) {
+				melhorChave = chave;
+				melhor = p;
+				System.arraycopy(c, 0, canonica, 0, 5);
+			}
+		}
+		return melhor;
+	}
+
+	private static int chave(int[] c) {
+		return c[0] | c[1] << 6 | c[2] << 12 | c[3] << 18 | c[4] << 24;
+	}
+
+	private static void ordena(int[] c) {
+		for (int i = 1; i < c.length; i++) {
+			int v = c[i];
+			int j = i - 1;
+			while (j >= 0 && c[j] > v) {
+				c[j + 1] = c[j];
+				j--;
+			}
+			c[j + 1] = v;
+		}
+	}
+
+	// mascara do melhor descarte nos 5 bits baixos e a chance nos 32 altos
+	private long resolve(int[] canonica) {
+		Long r = memoria.get(chave(canonica));
+		if (r == null) {
+			r = calcula(canonica);
+			memoria.put(chave(canonica), r);
+		}
+		return r;
+	}
+
+	private long calcula(int[] mao) {
+		// com cartas repetidas (sapato) sobram mais de 47 codigos
+		boolean[] naMao = new boolean[52];
+		int distintas = 0;
+		for (int i = 0; i < 5; i++) {
+			distintas += naMao[mao[i]] ? 0 : 1;
+			naMao[mao[i]] = true;
+		}
+		int[] resto = new int[52 - distintas];
+		int n = 0;
+		for (int codigo = 0; codigo < 52; codigo++) {
+			if (!naMao[codigo])
+				resto[n++] = codigo;
+		}
+
+		int melhor = 0;
+		float melhorChance = -1;
+		int[] jogo = new int[5];
+		// na ordem de quantidade de cartas trocadas, para o empate ficar com menos trocas
+		for (int trocadas = 0; trocadas <= 5; trocadas++) {
+			for (int mascara = 0; mascara < 32; mascara++) {
+				if (Integer.bitCount(mascara) != trocadas)
+					continue;
+				float c;
+				if (trocadas == 5) {
+					c = manterNenhuma;
+				} else if (trocadas == 4) {
+					c = manterUma[mao[Integer.numberOfTrailingZeros(~mascara & 31)] % 13];
+				} else {
+					int k = 0;
+					for (int i = 0; i < 5; i++) {
+						if ((mascara & (1 << i)) == 0)
+							jogo[k++] = mao[i];
+					}
+					c = (float) media(jogo, k, resto);
+				}
+				if (c > melhorChance) {
+					melhorChance = c;
+					melhor = mascara;
+				}
+			}
+		}
+		return ((long) Float.floatToIntBits(melhorChance) << 32) | melhor;
+	}
+
+	// chance media completando jogo[0..mantidas) com as combinacoes do resto
+	private double media(int[] jogo, int mantidas, int[] resto) {
+		int n = resto.length;
+		double soma = 0;
+		long quantidade = 0;
+		switch (5 - mantidas) {
+		case 0:
+			return chance(jogo);
+		case 1:
+			for (int a = 0; a < n; a++) {
+				jogo[4] = resto[a];
+				soma += chance(jogo);
+				quantidade++;
+			}
+			break;
+		case 2:
+			for (int a = 0; a < n; a++) {
+				jogo[3] = resto[a];
+				for (int b = a + 1; b < n; b++) {
+					jogo[4] = resto[b];
+					soma += chance(jogo);
+					quantidade++;
+				}
+			}
+			break;
+		default:
+			for (int a = 0; a < n; a++) {
+				jogo[2] = resto[a];
+				for (int b = a + 1; b < n; b++) {
+					jogo[3] = resto[b];
+					for (int c = b + 1; c < n; c++) {
+						jogo[4] = resto[c];
+						soma += chance(jogo);
+						quantidade++;
+					}
+				}
+			}
+		}
+		return soma / quantidade;
+	}
+
+	public static void main(String[] args) {
+		long inicio = System.nanoTime();
+		DescarteOtimo d = padrao();
+		System.out.println("tabelas em " + (System.nanoTime() - inicio) / 1000000 + " ms");
+		Baralho baralho = new Baralho(new java.util.Random(1));
+		Carta[] jogo = new Carta[5];
+		for (int m = 0; m < 10; m++) {
+			if (m % 5 == 0)
+				baralho.embaralha(new java.util.Random(m));
+			baralho.get5cartas(jogo);
+			inicio = System.nanoTime();
+			int descarte = d.descarte(jogo);
+			long primeira = System.nanoTime() - inicio;
+			inicio = System.nanoTime();
+			d.descarte(jogo);
+			long segunda = System.nanoTime() - inicio;
+			StringBuilder troca = new StringBuilder();
+			for (int i = 0; i < 5; i++) {
+				if ((descarte & (1 << i)) != 0)
+					troca.append(jogo[i].valor + "." + jogo[i].naipe + " ");
+			}
+			System.out.println(Carta.printCartas(jogo) + "\ttroca [ " + troca + "]\tchance "
+					+ String.format("%.3f", d.chance(jogo)) + "\t" + primeira / 1000 + " us, memorizado "
+					+ segunda / 1000 + " us");
+		}
+	}
+
+}
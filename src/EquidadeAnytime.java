@@ -0,0 +1,132 @@
+import java.util.Random;
+
+/**
+ * Chance de ganhar de um jogo de 5 cartas contra oponentes com cartas
+ * aleatorias, estimada por amostragem ate o prazo da decisao. Cada amostra
+ * sorteia as maos dos oponentes do que sobrou do sapato, e a estimativa so
+ * melhora com o tempo: o agente usa o tempo que a mesa da e fica com a melhor
+ * resposta ate ali (calculo anytime).
+ * 
+ * Ao contrario da TabelaEquidade, tira do sapato as cartas que ja estao na
+ * mao e vale para qualquer numero de oponentes e de baralhos. Os empates
+ * contam como a fracao do pote que seria recebida.
+ * 
+ * So para o poker de 5 cartas: no Hold'em os oponentes dividem o board e as
+ * maos tem 2 a 7 cartas, o que esta amostragem nao modela.
+ */
+public class EquidadeAnytime {
+
+	static final int LOTE = 32; // amostras entre duas leituras do relogio
+
+	final int baralhos;
+	final long maximoAmostras;
+	private final Carta[] sapato;
+	private final Carta[] resto;
+	private final Carta[] oponente = new Carta[5];
+	private final Random gerador;
+
+	private long amostras;
+	private double soma;
+	private double somaQuadrados;
+
+	/**
+	 * @param baralhos       do sapato da mesa (Mesa.baralhos)
+	 * @param maximoAmostras quando nao ha prazo
+	 * @param semente
+	 */
+	public EquidadeAnytime(int baralhos, long maximoAmostras, long semente) {
+		this.baralhos = baralhos;
+		this.maximoAmostras = maximoAmostras;
+		sapato = new Carta[52 * baralhos];
+		for (int b = 0; b < baralhos; b++) {
+			System.arraycopy(Carta.getBaralhoOrdenado(), 0, sapato, 52 * b, 52);
+		}
+		resto = new Carta[sapato.length - 5];
+		gerador = new Random(semente);
+	}
+
+	/**
+	 * Estima a chance do jogo contra os oponentes, amostrando ate o prazo ou,
+	 * sem prazo, ate maximoAmostras (pelo menos um lote)
+	 * 
+	 * @param jogo
+	 * @param oponentes
+	 * @param prazo     System.nanoTime limite, ou Long.MAX_VALUE sem prazo
+	 * @return
+	 */
+	public double estima(Carta[] jogo, int oponentes, long prazo) {
+		if (jogo.length != 5)
+			throw new IllegalArgumentException("EquidadeAnytime avalia jogos de 5 cartas, recebeu " + jogo.length);
+		tiraDoSapato(jogo);
+		oponentes = Math.max(1, Math.min(oponentes, resto.length / 5));
+		int pontos = Avaliacao.pontos(jogo);
+		amostras = 0;
+		soma = 0;
+		somaQuadrados = 0;
+		do {
+			for (int l = 0; l < LOTE; l++) {
+				double x = amostra(pontos, oponentes);
+				soma += x;
+				somaQuadrados += x * x;
+			}
+			amostras += LOTE;
+		} while (prazo == Long.MAX_VALUE ? amostras < maximoAmostras : System.nanoTime() - prazo < 0);
+		return soma / amostras;
+	}
+
+	// sorteia as maos dos oponentes sem repor e retorna a fracao do pote ganha
+	private double amostra(int pontos, int oponentes) {
+		int fim = resto.length;
+		int empates = 0;
+		for (int o = 0; o < oponentes; o++) {
+			for (int j = 0; j < 5; j++) {
+				int k = gerador.nextInt(fim--);
+				Carta c = resto[k];
+				resto[k] = resto[fim];
+				resto[fim] = c;
+				oponente[j] = c;
+			}
+			int p = Avaliacao.pontos(oponente);
+			if (p > pontos)
+				return 0;
+			if (p == pontos)
+				empates++;
+		}
+		return 1.0 / (empates + 1);
+	}
+
+	// resto = sapato sem uma copia de cada carta do jogo
+	private void tiraDoSapato(Carta[] jogo) {
+		int n = 0;
+		int tiradas = 0; // bit j: jogo[j] ja saiu do sapato
+		for (Carta c : sapato) {
+			int j = 0;
+			while (j < 5 && ((tiradas >> j & 1) != 0 || c.valor != jogo[j].valor || c.naipe != jogo[j].naipe))
+				j++;
+			if (j < 5)
+				tiradas |= 1 << j;
+			else
+				resto[n++] = c;
+		}
+	}
+
+	/**
+	 * Amostras usadas na ultima estimativa
+	 * 
+	 * @return
+	 */
+	public long amostras() {
+		return amostras;
+	}
+
+	/**
+	 * Erro padrao da ultima estimativa
+	 * 
+	 * @return
+	 */
+	public double erroPadrao() {
+		double media = soma / amostras;
+		return Math.sqrt(Math.max(0, somaQuadrados / amostras - media * media) / amostras);
+	}
+
+}
@@ -0,0 +1,102 @@
+
+/**
+ * Estatisticas acumuladas por assento a partir das ObservacaoMao. Cada mao
+ * custa O(assentos) para atualizar e todas as consultas sao O(1), sem guardar
+ * historico.
+ */
+public class EstatisticasOponentes {
+
+	long maos;
+	long somaApostasMesa; // soma das primeiras apostas de todos os assentos ativos
+	long maosJogadasMesa; // soma de maosJogadas de todos os assentos
+
+	long[] maosJogadas;
+	long[] somaApostas;
+	long[] pagou;
+	long[] showdowns;
+	long[] vitorias;
+	long[] somaPontosShowdown;
+	long[] lucro;
+
+	public EstatisticasOponentes(int jogadores) {
+		maosJogadas = new long[jogadores];
+		somaApostas = new long[jogadores];
+		pagou = new long[jogadores];
+		showdowns = new long[jogadores];
+		vitorias = new long[jogadores];
+		somaPontosShowdown = new long[jogadores];
+		lucro = new long[jogadores];
+	}
+
+	public void atualiza(ObservacaoMao obs) {
+		maos++;
+		for (int i = 0; i < obs.jogadores; i++) {
+			// quem esta sem saldo nao joga
+			if (obs.primeirasApostas[i] == 0)
+				continue;
+			maosJogadas[i]++;
+			maosJogadasMesa++;
+			somaApostas[i] += obs.primeirasApostas[i];
+			somaApostasMesa += obs.primeirasApostas[i];
+			if (obs.pagaramPraVer[i])
+				pagou[i]++;
+			if (obs.foiAoShowdown(i)) {
+				showdowns[i]++;
+				somaPontosShowdown[i] += obs.pontos[i];
+			}
+			if (obs.premios[i] > 0)
+				vitorias[i]++;
+			lucro[i] += obs.lucro(i);
+		}
+	}
+
+	/**
+	 * Aposta media do assento dividida pela aposta media da mesa. Acima de 1 o
+	 * oponente aposta mais que a media.
+	 * 
+	 * @param assento
+	 * @return
+	 */
+	public double agressividade(int assento) {
+		if (maosJogadas[assento] == 0 || somaApostasMesa == 0)
+			return 1;
+		double mediaAssento = (double) somaApostas[assento] / maosJogadas[assento];
+		double mediaMesa = (double) somaApostasMesa / maosJogadasMesa;
+		return mediaAssento / mediaMesa;
+	}
+
+	/**
+	 * Fracao das maos em que o assento pagou para ver
+	 * 
+	 * @param assento
+	 * @return
+	 */
+	public double taxaPagaPraVer(int assento) {
+		if (maosJogadas[assento] == 0)
+			return 0;
+		return (double) pagou[assento] / maosJogadas[assento];
+	}
+
+	/**
+	 * Pontos medios do assento nos showdowns ou -1 se nunca foi ao showdown
+	 * 
+	 * @param assento
+	 * @return
+	 */
+	public double forcaShowdown(int assento) {
+		if (showdowns[assento] == 0)
+			return -1;
+		return (double) somaPontosShowdown[assento] / showdowns[assento];
+	}
+
+	public double taxaVitorias(int assento) {
+		if (maosJogadas[assento] == 0)
+			return 0;
+		return (double) vitorias[assento] / maosJogadas[assento];
+	}
+
+	public long lucro(int assento) {
+		return lucro[assento];
+	}
+
+}
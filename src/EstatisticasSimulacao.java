@@ -0,0 +1,109 @@
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Estatisticas de uma simulacao, por assento. Sao so somas, entao os resultados
+ * de lotes diferentes podem ser juntados em qualquer ordem e o total nao depende
+ * de quantos trabalhadores rodaram.
+ */
+public class EstatisticasSimulacao {
+
+	final int jogadores;
+	long partidas;
+	long maos;
+	final long[] lucro;
+	final long[] vitorias;
+	final long[] showdowns;
+	final long[] pagou;
+	final long[] quebrou; // partidas terminadas sem saldo
+
+	public EstatisticasSimulacao(int jogadores) {
+		this.jogadores = jogadores;
+		lucro = new long[jogadores];
+		vitorias = new long[jogadores];
+		showdowns = new long[jogadores];
+		pagou = new long[jogadores];
+		quebrou = new long[jogadores];
+	}
+
+	public void registra(ObservacaoMao obs) {
+		maos++;
+		for (int i = 0; i < jogadores; i++) {
+			lucro[i] += obs.lucro(i);
+			if (obs.premios[i] > 0)
+				vitorias[i]++;
+			if (obs.foiAoShowdown(i))
+				showdowns[i]++;
+			if (obs.pagaramPraVer[i])
+				pagou[i]++;
+		}
+	}
+
+	public void fimDePartida(Controlador[] jogadores) {
+		partidas++;
+		for (int i = 0; i < this.jogadores; i++) {
+			if (jogadores[i].saldo == 0)
+				quebrou[i]++;
+		}
+	}
+
+	public void junta(EstatisticasSimulacao outra) {
+		partidas += outra.partidas;
+		maos += outra.maos;
+		for (int i = 0; i < jogadores; i++) {
+			lucro[i] += outra.lucro[i];
+			vitorias[i] += outra.vitorias[i];
+			showdowns[i] += outra.showdowns[i];
+			pagou[i] += outra.pagou[i];
+			quebrou[i] += outra.quebrou[i];
+		}
+	}
+
+	/**
+	 * Lucro medio do assento por mao
+	 * 
+	 * @param assento
+	 * @return
+	 */
+	public double lucroPorMao(int assento) {
+		return maos == 0 ? 0 : (double) lucro[assento] / maos;
+	}
+
+	public void grava(DataOutputStream out) throws IOException {
+		out.writeInt(jogadores);
+		out.writeLong(partidas);
+		out.writeLong(maos);
+		for (int i = 0; i < jogadores; i++) {
+			out.writeLong(lucro[i]);
+			out.writeLong(vitorias[i]);
+			out.writeLong(showdowns[i]);
+			out.writeLong(pagou[i]);
+			out.writeLong(quebrou[i]);
+		}
+	}
+
+	public static EstatisticasSimulacao le(DataInputStream in) throws IOException {
+		EstatisticasSimulacao e = new EstatisticasSimulacao(in.readInt());
+		e.partidas = in.readLong();
+		e.maos = in.readLong();
+		for (int i = 0; i < e.jogadores; i++) {
+			e.lucro[i] = in.readLong();
+			e.vitorias[i] = in.readLong();
+			e.showdowns[i] = in.readLong();
+			e.pagou[i] = in.readLong();
+			e.quebrou[i] = in.readLong();
+		}
+		return e;
+	}
+
+	public void mostra(String[] agentes) {
+		System.out.println(partidas + " partidas, " + maos + " maos");
+		for (int i = 0; i < jogadores; i++) {
+			System.out.println((i + 1) + " " + agentes[i] + "\tlucro/mao " + String.format("%.3f", lucroPorMao(i))
+					+ "\tvitorias " + vitorias[i] + "\tshowdowns " + showdowns[i] + "\tpagou " + pagou[i]
+					+ "\tquebrou " + quebrou[i]);
+		}
+	}
+
+}
@@ -0,0 +1,34 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento do Java Flight Recorder para cada decisao de um agente, com a duracao
+ * da chamada ao agente (sem a espera pelo agendamento, que fica nas
+ * MetricasMesa).
+ */
+@Name("poker.Decisao")
+@Label("Decisao do agente")
+@Category("Poker")
+@Description("Chamada a getPrimeiraAposta, getDescarte ou getSegundaAposta de um agente")
+@StackTrace(false)
+public class EventoDecisao extends jdk.jfr.Event {
+
+	@Label("Mesa")
+	int mesa;
+
+	@Label("Assento")
+	int assento;
+
+	@Label("Agente")
+	Class<?> agente;
+
+	@Label("Decisao")
+	String decisao;
+
+	@Label("Resultado")
+	int resultado; // aposta, cartas descartadas ou 1 se pagou para ver
+
+}
@@ -0,0 +1,30 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Evento do Java Flight Recorder para cada fase da mao na Mesa: distribui,
+ * primeiraAposta, pagaPraVer, showdown e paga. A duracao e a da fase.
+ * 
+ * Sem gravacao ativa o evento nao e gravado e, depois de compilado, nem e
+ * criado. Para gravar: java -XX:StartFlightRecording:filename=poker.jfr Poker
+ */
+@Name("poker.FaseMao")
+@Label("Fase da mao")
+@Category("Poker")
+@Description("Uma fase da mao na Mesa")
+@StackTrace(false)
+public class EventoFaseMao extends jdk.jfr.Event {
+
+	@Label("Mesa")
+	int mesa;
+
+	@Label("Mao")
+	long mao;
+
+	@Label("Fase")
+	String fase;
+
+}
@@ -0,0 +1,39 @@
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.FlightRecorderListener;
+import jdk.jfr.Recording;
+import jdk.jfr.RecordingState;
+
+/**
+ * Diz se ha alguma gravacao do Flight Recorder em andamento, para a Mesa e o
+ * Controlador nem criarem os eventos quando nao ha. Registrar o listener nao
+ * inicializa o Flight Recorder; ele avisa quando uma gravacao comeca ou
+ * termina, inclusive as iniciadas depois por jcmd.
+ */
+class GravacaoJfr implements FlightRecorderListener {
+
+	static volatile boolean ativa;
+
+	static {
+		FlightRecorder.addListener(new GravacaoJfr());
+	}
+
+	@Override
+	public void recorderInitialized(FlightRecorder recorder) {
+		atualiza(recorder);
+	}
+
+	@Override
+	public void recordingStateChanged(Recording recording) {
+		atualiza(FlightRecorder.getFlightRecorder());
+	}
+
+	private static void atualiza(FlightRecorder recorder) {
+		boolean gravando = false;
+		for (Recording r : recorder.getRecordings()) {
+			if (r.getState() == RecordingState.RUNNING)
+				gravando = true;
+		}
+		ativa = gravando;
+	}
+
+}
@@ -0,0 +1,408 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Uma mesa de poker. Guarda o contexto da mao (baralho, cartas, apostas e
+ * pontos) em arrays criados uma vez e reaproveitados, entao uma mao da mesa
+ * sincrona (simulacao) nao aloca memoria. Com threads, as cartas entregues a
+ * cada agente sao uma copia nova por mao, porque um agente atrasado ainda pode
+ * estar lendo as da mao anterior; e o laco do Poker.main, fora de jogaMao(),
+ * monta strings para mostrar o tempo e os saldos. Os jogos so sao avaliados no
+ * showdown, para quem pagou para ver.
+ */
+public class Mesa {
+
+	final int id;
+	final Controlador[] jogadores;
+	long miliSegundosDeIntervalo = Poker.miliSegundosDeIntervalo;
+	boolean verbose = Poker.verbose;
+	// sem threads nem espera: os agentes decidem na thread do jogo (simulacao)
+	boolean sincrono;
+	// mesa com muitos assentos: na sincrona os agentes de cada rodada decidem em
+	// paralelo; com threads a rodada acaba quando todos responderem, sem esperar
+	// o intervalo inteiro. Mesas menores mantem o ritmo fixo do jogo
+	boolean paralelo;
+	static final int ASSENTOS_PARALELO = 16;
+	// poker com troca: uma rodada de descarte entre as duas apostas
+	boolean troca = Poker.trocaDeCartas;
+
+	// o baralho de cada mao vem da semente e do numero da mao
+	long semente;
+	long mao;
+	private final Random gerador = new Random();
+	private final Baralho baralho;
+	// com threads e paralelo: quem foi agendado na rodada e o aviso das respostas
+	private final boolean[] agendados;
+	private final Object respostas = new Object();
+
+	// contexto da mao
+	final Carta[][] cartas;
+	private final Carta[][] cartasAgentes; // copias entregues aos agentes (sincrona)
+	final int[] apostas;
+	final int[] pontosJogos; // 0 = ainda nao avaliado, -1 = fora do showdown
+	int apostaMaisAlta;
+	int pote;
+	private final int[] vencedores; // empatados nos pontos mais altos
+	private int quantidadeVencedores;
+	final ObservacaoMao observacao;
+	final MetricasMesa metricas;
+	RatingElo.Lote rating; // opcional
+	private ResultadosColunares resultados; // opcional
+	private int[] agentesResultados;
+	private ArquivoMaos.Escritor arquivo; // opcional
+	private int[] agentesArquivo;
+
+	public Mesa(int id, Controlador[] jogadores, long semente) {
+		this.id = id;
+		this.jogadores = jogadores;
+		this.semente = semente;
+		int n = jogadores.length;
+		baralho = new Baralho(gerador, baralhos(n));
+		paralelo = n >= ASSENTOS_PARALELO;
+		cartas = new Carta[n][5];
+		cartasAgentes = new Carta[n][5];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < 5; j++) {
+				cartasAgentes[i][j] = new Carta(0, ' ');
+			}
+			jogadores[i].assento = i;
+			jogadores[i].mesa = id;
+		}
+		apostas = new int[n];
+		pontosJogos = new int[n];
+		vencedores = new int[n];
+		agendados = new boolean[n];
+		observacao = new ObservacaoMao(n);
+		metricas = new MetricasMesa(id, jogadores);
+		for (int i = 0; i < n; i++) {
+			jogadores[i].metricas = metricas;
+		}
+	}
+
+	/**
+	 * Baralhos do sapato: um da 10 jogadores, mais que isso usa varios.
+	 * 
+	 * O AgenteProbabilistico aposta pelo oddsMap, que nao depende do baralho; no
+	 * poker com troca o descarte dele vem do DescarteOtimo, que compra de um
+	 * baralho de 52 cartas sem as da mao mesmo num sapato (funciona com cartas
+	 * repetidas, mas nao conta as copias dos outros baralhos). AgenteEquidade e
+	 * EquidadeAnytime sorteiam do sapato com a quantidade certa de baralhos.
+	 * 
+	 * @param assentos
+	 * @return
+	 */
+	public static int baralhos(int assentos) {
+		return Math.max(1, (5 * assentos + 51) / 52);
+	}
+
+	/**
+	 * Grava o resultado de cada mao, com o agente identificado pelo nome da
+	 * classe
+	 * 
+	 * @param resultados
+	 */
+	public void registraResultados(ResultadosColunares resultados) {
+		agentesResultados = new int[jogadores.length];
+		for (int i = 0; i < jogadores.length; i++) {
+			agentesResultados[i] = resultados.agente(jogadores[i].agente.getClass().getSimpleName());
+		}
+		this.resultados = resultados;
+	}
+
+	/**
+	 * Grava cada mao no arquivo historico, com o agente identificado pelo nome
+	 * do jogador
+	 * 
+	 * @param arquivo
+	 * @throws IOException
+	 */
+	public void arquivaMaos(ArquivoMaos.Escritor arquivo) throws IOException {
+		agentesArquivo = new int[jogadores.length];
+		for (int i = 0; i < jogadores.length; i++) {
+			agentesArquivo[i] = arquivo.agente(jogadores[i].getName());
+		}
+		this.arquivo = arquivo;
+	}
+
+	// Starta os agentes, com o prazo das decisoes ajustado a janela da mesa
+	public void inicia() {
+		if (sincrono)
+			return;
+		for (int i = 0; i < jogadores.length; i++) {
+			jogadores[i].orcamento = new OrcamentoDecisao(miliSegundosDeIntervalo * 1_000_000);
+			if (paralelo)
+				jogadores[i].respostas = respostas;
+			jogadores[i].start();
+		}
+	}
+
+	public void jogaMao() throws InterruptedException {
+		mao++;
+		if (verbose)
+			System.out.println("\n PRIMEIRA APOSTA");
+		EventoFaseMao evento = iniciaEvento();
+		distribui();
+		registra(evento, "distribui");
+
+		evento = iniciaEvento();
+		// aguarda os agentes
+		aguarda();
+		primeiraAposta();
+		registra(evento, "primeiraAposta");
+
+		if (troca) {
+			evento = iniciaEvento();
+			troca();
+			registra(evento, "troca");
+		}
+
+		evento = iniciaEvento();
+		// pergunta quem vai pagar para ver
+		for (int i = 0; i < jogadores.length; i++) {
+			jogadores[i].setPagaPraVer(apostaMaisAlta);
+			agenda(i);
+		}
+		if (verbose)
+			System.out.println("\n SEGUNDA APOSTA");
+		// aguarda os agentes
+		aguarda();
+		registra(evento, "pagaPraVer");
+
+		evento = iniciaEvento();
+		showdown();
+		registra(evento, "showdown");
+
+		evento = iniciaEvento();
+		paga();
+		registra(evento, "paga");
+
+		observa();
+		if (rating != null)
+			rating.registra(observacao);
+		if (resultados != null)
+			resultados.registra(observacao, cartas, agentesResultados);
+		if (arquivo != null)
+			try {
+				arquivo.registra(observacao, cartas, agentesArquivo);
+			} catch (IOException e) {
+				System.out.println("Mesa " + id + ": erro ao gravar o arquivo de maos: " + e.getMessage());
+				arquivo = null;
+			}
+		metricas.publicaMao(mao, jogadores);
+	}
+
+	// so cria o evento se o Flight Recorder estiver gravando
+	private static EventoFaseMao iniciaEvento() {
+		if (!GravacaoJfr.ativa)
+			return null;
+		EventoFaseMao evento = new EventoFaseMao();
+		evento.begin();
+		return evento;
+	}
+
+	private void registra(EventoFaseMao evento, String fase) {
+		if (evento == null)
+			return;
+		evento.end();
+		if (evento.shouldCommit()) {
+			evento.mesa = id;
+			evento.mao = mao;
+			evento.fase = fase;
+			evento.commit();
+		}
+	}
+
+	// distribui as cartas
+	private void distribui() {
+		gerador.setSeed(semente ^ (mao * 0x9E3779B97F4A7C15L));
+		baralho.embaralha(gerador);
+		for (int i = 0; i < cartas.length; i++) {
+			baralho.get5cartas(cartas[i]);
+			jogadores[i].setCartas(entrega(i));
+			if (jogadores[i].saldo == 0)
+				pontosJogos[i] = -1;
+			else {
+				pontosJogos[i] = 0;
+				agenda(i);
+			}
+		}
+	}
+
+	// cartas do agente nesta mao: na mesa sincrona o agente ja respondeu a mao
+	// anterior e o buffer e reaproveitado; com threads vai uma copia nova
+	private Carta[] entrega(int i) {
+		if (!sincrono)
+			return Carta.copia(cartas[i]);
+		Carta.copia(cartas[i], cartasAgentes[i]);
+		return cartasAgentes[i];
+	}
+
+	// apostas da partida
+	private void primeiraAposta() {
+		apostaMaisAlta = 0;
+		for (int i = 0; i < jogadores.length; i++) {
+			// o agente nao respondeu no intervalo
+			if (jogadores[i].primeiraAposta && pontosJogos[i] == 0)
+				metricas.timeout(i);
+			// pega a aposta, deve ser no minimo a aposta minima e no maximo o saldo
+			apostas[i] = Math.min(Math.max(Poker.apostaMinima, jogadores[i].aposta), jogadores[i].saldo);
+			// atualiza o saldo
+			jogadores[i].saldo -= apostas[i];
+
+			if (verbose)
+				System.out.println(Carta.printCartas(cartas[i]) + "\t" + jogadores[i].getName() + " - APOSTA "
+						+ apostas[i] + "\t" + (Avaliacao.avaliaJogo(cartas[i])));
+			// atualiza a aposta mais alta
+			apostaMaisAlta = Math.max(apostaMaisAlta, apostas[i]);
+		}
+		System.arraycopy(apostas, 0, observacao.primeirasApostas, 0, apostas.length);
+	}
+
+	// quem esta na mao descarta e recebe as cartas novas
+	private void troca() throws InterruptedException {
+		if (verbose)
+			System.out.println("\n TROCA");
+		for (int i = 0; i < jogadores.length; i++) {
+			if (pontosJogos[i] == 0) {
+				jogadores[i].setTroca();
+				agenda(i);
+			}
+		}
+		aguarda();
+		for (int i = 0; i < jogadores.length; i++) {
+			if (pontosJogos[i] != 0)
+				continue;
+			if (jogadores[i].trocar)
+				metricas.timeout(i);
+			int descarte = jogadores[i].descarte & 31;
+			// descarte != 0 so depois que o agente saiu de getDescarte, entao ele
+			// nao ve as cartas mudarem no meio da decisao
+			if (descarte != 0) {
+				baralho.troca(cartas[i], descarte);
+				Carta.copia(cartas[i], jogadores[i].jogo);
+			}
+			if (verbose)
+				System.out.println(Carta.printCartas(cartas[i]) + "\t" + jogadores[i].getName() + " - TROCOU "
+						+ Integer.bitCount(descarte));
+		}
+	}
+
+	// avalia os jogos de quem foi ao showdown e, na mesma passada, soma o pote e
+	// guarda os vencedores
+	private void showdown() {
+		int pontosMaisAltos = -1;
+		quantidadeVencedores = 0;
+		pote = 0;
+		for (int i = 0; i < jogadores.length; i++) {
+			if (jogadores[i].segundaAposta && pontosJogos[i] == 0)
+				metricas.timeout(i);
+			// le a resposta uma vez: a observacao mostra a mesma que valeu aqui
+			boolean pagou = jogadores[i].pagaPraVer;
+			observacao.pagaramPraVer[i] = pagou;
+			// so avalia quem paga para ver
+			if (pagou || (apostas[i] == apostaMaisAlta)) {
+				if (pontosJogos[i] == 0)
+					pontosJogos[i] = Avaliacao.pontos(cartas[i]);
+				int p = pontosJogos[i];
+				if (p > pontosMaisAltos) {
+					pontosMaisAltos = p;
+					quantidadeVencedores = 0;
+				}
+				if (p == pontosMaisAltos)
+					vencedores[quantidadeVencedores++] = i;
+
+				// ajusta as apostas
+				int apostaComplementar = apostaMaisAlta - apostas[i]; // calcula complemento
+				apostaComplementar = Math.min(jogadores[i].saldo, apostaComplementar); // limita a aposta ao saldo
+				apostas[i] += apostaComplementar; // atualiza o pote
+				// substrai do saldo
+				jogadores[i].saldo -= apostaComplementar;
+				if (verbose)
+					System.out.println(jogadores[i].getName() + " - APOSTA " + apostas[i]);
+			} else {
+				// tira os pontos do jogador que desistiu
+				pontosJogos[i] = -1;
+			}
+			pote += apostas[i];
+		}
+	}
+
+	// paga aos campeoes
+	private void paga() {
+		int premio = pote / quantidadeVencedores;
+		for (int i = 0; i < apostas.length; i++) {
+			observacao.premios[i] = 0;
+		}
+		for (int k = 0; k < quantidadeVencedores; k++) {
+			int i = vencedores[k];
+			jogadores[i].saldo += premio;
+			observacao.premios[i] = premio;
+		}
+	}
+
+	private void agenda(int i) {
+		if (sincrono) {
+			// em paralelo, os pedidos ficam marcados e sao atendidos em aguarda()
+			if (!paralelo)
+				jogadores[i].atende();
+		} else {
+			agendados[i] = true;
+			synchronized (jogadores[i]) {
+				jogadores[i].notify(); // Avisa que houve um agendamento.
+			}
+		}
+	}
+
+	private void aguarda() throws InterruptedException {
+		if (!sincrono && paralelo)
+			aguardaRespostas();
+		else if (!sincrono)
+			Thread.sleep(miliSegundosDeIntervalo);
+		else if (paralelo)
+			atendeEmParalelo();
+	}
+
+	// espera o intervalo ou ate todos os agendados responderem, o que vier antes
+	private void aguardaRespostas() throws InterruptedException {
+		long fim = System.nanoTime() + miliSegundosDeIntervalo * 1_000_000;
+		synchronized (respostas) {
+			long falta;
+			while (!responderam() && (falta = fim - System.nanoTime()) > 0)
+				respostas.wait(falta / 1_000_000, (int) (falta % 1_000_000));
+		}
+		Arrays.fill(agendados, false);
+	}
+
+	// chamado com o lock de respostas, que o Controlador pega depois de responder
+	private boolean responderam() {
+		for (int i = 0; i < jogadores.length; i++) {
+			if (agendados[i] && jogadores[i].decidindo())
+				return false;
+		}
+		return true;
+	}
+
+	private void atendeEmParalelo() {
+		Arrays.stream(jogadores).parallel().forEach(Controlador::atende);
+	}
+
+	// envia o resultado da mao para os agentes
+	private void observa() {
+		observacao.mao = mao;
+		observacao.apostaMaisAlta = apostaMaisAlta;
+		observacao.pote = pote;
+		System.arraycopy(apostas, 0, observacao.apostas, 0, apostas.length);
+		System.arraycopy(pontosJogos, 0, observacao.pontos, 0, pontosJogos.length);
+		for (int i = 0; i < jogadores.length; i++) {
+			observacao.saldos[i] = jogadores[i].saldo;
+		}
+		for (int i = 0; i < jogadores.length; i++) {
+			jogadores[i].setObservacao(observacao);
+			agenda(i);
+		}
+		if (sincrono && paralelo)
+			atendeEmParalelo();
+	}
+
+}
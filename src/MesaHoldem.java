@@ -0,0 +1,272 @@
+import java.util.Random;
+
+/**
+ * Mesa de Texas Hold'em. Cada jogador recebe 2 cartas fechadas e a mesa abre 5
+ * cartas em tres ruas (flop, turn e river). Em cada rua os agentes fazem as
+ * mesmas duas apostas do jogo de 5 cartas: getPrimeiraAposta com as cartas que
+ * podem ver (as 2 deles mais as da mesa) e getSegundaAposta para pagar a aposta
+ * mais alta ou desistir.
+ * 
+ * So joga com threads e o intervalo fixo: nao tem o modo sincrono do Simulador,
+ * nem MetricasMesa nem os eventos de fase do Flight Recorder da Mesa. A
+ * velocidade do avaliador de 7 cartas esta explicada em AvaliacaoSete.
+ */
+public class MesaHoldem {
+
+	static final int RUAS = 4;
+	static final int[] CARTAS_ABERTAS = { 0, 3, 4, 5 };
+	static final String[] NOMES_RUAS = { "PRE-FLOP", "FLOP", "TURN", "RIVER" };
+
+	final int id;
+	final Controlador[] jogadores;
+	long miliSegundosDeIntervalo = Poker.miliSegundosDeIntervalo;
+	boolean verbose = Poker.verbose;
+
+	long semente;
+	long mao;
+	private final Random gerador = new Random();
+	private final Baralho baralho;
+
+	// contexto da mao, reaproveitado como na Mesa
+	final Carta[][] privadas;
+	final Carta[] comunitarias = new Carta[5];
+	// cartas da rua entregues a cada agente: uma copia nova por rua, porque um
+	// agente atrasado ainda pode estar lendo as da rua ou mao anterior (Mesa.entrega)
+	private final Carta[][] entregues;
+	final boolean[] naMao;
+	final int[] apostas; // total de cada jogador no pote
+	final int[] apostasRua;
+	final int[] pontosJogos;
+	int pote;
+	final ObservacaoMao observacao;
+
+	public MesaHoldem(int id, Controlador[] jogadores, long semente) {
+		this.id = id;
+		this.jogadores = jogadores;
+		this.semente = semente;
+		int n = jogadores.length;
+		baralho = new Baralho(gerador);
+		privadas = new Carta[n][2];
+		entregues = new Carta[n][];
+		for (int i = 0; i < n; i++) {
+			jogadores[i].assento = i;
+			jogadores[i].mesa = id;
+		}
+		naMao = new boolean[n];
+		apostas = new int[n];
+		apostasRua = new int[n];
+		pontosJogos = new int[n];
+		observacao = new ObservacaoMao(n);
+	}
+
+	// Starta os agentes, com o prazo das decisoes ajustado a janela da mesa
+	public void inicia() {
+		for (int i = 0; i < jogadores.length; i++) {
+			jogadores[i].orcamento = new OrcamentoDecisao(miliSegundosDeIntervalo * 1_000_000);
+			jogadores[i].start();
+		}
+	}
+
+	public void jogaMao() throws InterruptedException {
+		mao++;
+		distribui();
+		for (int rua = 0; rua < RUAS && jogadoresNaMao() > 1; rua++) {
+			if (verbose)
+				System.out.println("\n " + NOMES_RUAS[rua] + " " + Carta.printCartas(cartasAbertas(rua)));
+			rodadaDeApostas(rua);
+		}
+		int pontosMaisAltos = showdown();
+		paga(pontosMaisAltos);
+		observa();
+	}
+
+	private void distribui() {
+		gerador.setSeed(semente ^ (mao * 0x9E3779B97F4A7C15L));
+		baralho.embaralha(gerador);
+		for (int i = 0; i < jogadores.length; i++) {
+			privadas[i][0] = baralho.getCarta();
+			privadas[i][1] = baralho.getCarta();
+			naMao[i] = jogadores[i].saldo > 0;
+			apostas[i] = 0;
+		}
+		for (int i = 0; i < comunitarias.length; i++) {
+			comunitarias[i] = baralho.getCarta();
+		}
+	}
+
+	private void rodadaDeApostas(int rua) throws InterruptedException {
+		// mostra as cartas da rua para quem ainda esta na mao
+		for (int i = 0; i < jogadores.length; i++) {
+			if (!naMao[i])
+				continue;
+			Carta[] visiveis = new Carta[2 + CARTAS_ABERTAS[rua]];
+			visiveis[0] = new Carta(privadas[i][0].valor, privadas[i][0].naipe);
+			visiveis[1] = new Carta(privadas[i][1].valor, privadas[i][1].naipe);
+			for (int j = 0; j < CARTAS_ABERTAS[rua]; j++) {
+				visiveis[2 + j] = new Carta(comunitarias[j].valor, comunitarias[j].naipe);
+			}
+			ordena(visiveis);
+			entregues[i] = visiveis;
+			jogadores[i].setCartas(visiveis);
+			synchronized (jogadores[i]) {
+				jogadores[i].notify(); // Avisa que houve um agendamento.
+			}
+		}
+		// aguarda os agentes
+		Thread.sleep(miliSegundosDeIntervalo);
+
+		// so o pre-flop tem aposta minima, nas outras ruas pode passar
+		int minima = rua == 0 ? Poker.apostaMinima : 0;
+		int apostaMaisAlta = 0;
+		for (int i = 0; i < jogadores.length; i++) {
+			apostasRua[i] = 0;
+			if (!naMao[i])
+				continue;
+			apostasRua[i] = Math.min(Math.max(minima, jogadores[i].aposta), jogadores[i].saldo);
+			jogadores[i].saldo -= apostasRua[i];
+			apostaMaisAlta = Math.max(apostaMaisAlta, apostasRua[i]);
+			if (verbose)
+				System.out.println(Carta.printCartas(entregues[i]) + "\t" + jogadores[i].getName()
+						+ " - APOSTA " + apostasRua[i]);
+		}
+
+		// pergunta quem vai pagar para ver, se alguem apostou
+		if (apostaMaisAlta > 0) {
+			for (int i = 0; i < jogadores.length; i++) {
+				if (!naMao[i])
+					continue;
+				jogadores[i].setPagaPraVer(apostaMaisAlta);
+				synchronized (jogadores[i]) {
+					jogadores[i].notify(); // Avisa que houve um agendamento.
+				}
+			}
+			// aguarda os agentes
+			Thread.sleep(miliSegundosDeIntervalo);
+		}
+
+		for (int i = 0; i < jogadores.length; i++) {
+			if (!naMao[i])
+				continue;
+			if (apostaMaisAlta == 0 || jogadores[i].pagaPraVer || apostasRua[i] == apostaMaisAlta) {
+				int apostaComplementar = Math.min(jogadores[i].saldo, apostaMaisAlta - apostasRua[i]);
+				apostasRua[i] += apostaComplementar;
+				jogadores[i].saldo -= apostaComplementar;
+			} else {
+				naMao[i] = false;
+				if (verbose)
+					System.out.println(jogadores[i].getName() + " - DESISTIU");
+			}
+			apostas[i] += apostasRua[i];
+		}
+		if (rua == 0)
+			System.arraycopy(apostasRua, 0, observacao.primeirasApostas, 0, apostasRua.length);
+	}
+
+	// avalia as 7 cartas de quem chegou ao fim e retorna os pontos mais altos
+	private int showdown() {
+		int pontosMaisAltos = -1;
+		boolean sozinho = jogadoresNaMao() == 1;
+		// o board e o mesmo para todos: anda a tabela com ele uma vez so
+		int estado = 0;
+		long mascaras = 0, contagens = 0;
+		for (int j = 0; j < comunitarias.length && !sozinho; j++) {
+			int c = Carta.codigo(comunitarias[j]);
+			estado = AvaliacaoSete.avanca(estado, c);
+			mascaras |= AvaliacaoSete.mascaraCodigo[c];
+			contagens += AvaliacaoSete.contagemCodigo[c];
+		}
+		for (int i = 0; i < jogadores.length; i++) {
+			pontosJogos[i] = -1;
+			if (!naMao[i])
+				continue;
+			// se todos desistiram o ultimo leva o pote sem mostrar as cartas
+			if (sozinho)
+				pontosJogos[i] = 0;
+			else {
+				int a = Carta.codigo(privadas[i][0]);
+				int b = Carta.codigo(privadas[i][1]);
+				pontosJogos[i] = AvaliacaoSete.pontos(AvaliacaoSete.avanca(AvaliacaoSete.avanca(estado, a), b),
+						mascaras | AvaliacaoSete.mascaraCodigo[a] | AvaliacaoSete.mascaraCodigo[b],
+						contagens + AvaliacaoSete.contagemCodigo[a] + AvaliacaoSete.contagemCodigo[b]);
+				if (verbose)
+					System.out.println(jogadores[i].getName() + "\t" + Carta.printCartas(privadas[i]) + "\t"
+							+ Avaliacao.descricao(pontosJogos[i]));
+			}
+			pontosMaisAltos = Math.max(pontosMaisAltos, pontosJogos[i]);
+		}
+		return pontosMaisAltos;
+	}
+
+	// paga aos campeoes
+	private void paga(int pontosMaisAltos) {
+		int divisor = 0;
+		for (int i = 0; i < pontosJogos.length; i++) {
+			if (pontosJogos[i] == pontosMaisAltos)
+				divisor++;
+		}
+		pote = 0;
+		for (int i = 0; i < apostas.length; i++) {
+			pote += apostas[i];
+		}
+		int premio = pote / divisor;
+		for (int i = 0; i < apostas.length; i++) {
+			observacao.premios[i] = 0;
+			if (pontosJogos[i] == pontosMaisAltos) {
+				jogadores[i].saldo += premio;
+				observacao.premios[i] = premio;
+			}
+		}
+	}
+
+	// envia o resultado da mao para os agentes
+	private void observa() {
+		observacao.mao = mao;
+		observacao.pote = pote;
+		observacao.apostaMaisAlta = 0;
+		System.arraycopy(apostas, 0, observacao.apostas, 0, apostas.length);
+		System.arraycopy(pontosJogos, 0, observacao.pontos, 0, pontosJogos.length);
+		for (int i = 0; i < jogadores.length; i++) {
+			observacao.apostaMaisAlta = Math.max(observacao.apostaMaisAlta, apostas[i]);
+			observacao.pagaramPraVer[i] = naMao[i];
+			observacao.saldos[i] = jogadores[i].saldo;
+		}
+		for (int i = 0; i < jogadores.length; i++) {
+			jogadores[i].setObservacao(observacao);
+			synchronized (jogadores[i]) {
+				jogadores[i].notify(); // Avisa que houve um agendamento.
+			}
+		}
+	}
+
+	private int jogadoresNaMao() {
+		int n = 0;
+		for (int i = 0; i < naMao.length; i++) {
+			if (naMao[i])
+				n++;
+		}
+		return n;
+	}
+
+	private Carta[] cartasAbertas(int rua) {
+		Carta[] resp = new Carta[CARTAS_ABERTAS[rua]];
+		System.arraycopy(comunitarias, 0, resp, 0, resp.length);
+		return resp;
+	}
+
+	// ordena da maior para menor, trocando os valores das copias
+	private static void ordena(Carta[] jogo) {
+		for (int i = 0; i < jogo.length; i++) {
+			for (int j = i + 1; j < jogo.length; j++) {
+				if (jogo[i].valor < jogo[j].valor) {
+					int valor = jogo[i].valor;
+					char naipe = jogo[i].naipe;
+					jogo[i].valor = jogo[j].valor;
+					jogo[i].naipe = jogo[j].naipe;
+					jogo[j].valor = valor;
+					jogo[j].naipe = naipe;
+				}
+			}
+		}
+	}
+
+}
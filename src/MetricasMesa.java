@@ -0,0 +1,78 @@
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Contadores de uma mesa para o ServidorMetricas. Cada campo tem um unico
+ * escritor (a thread do jogo ou a thread do Controlador do assento), que publica
+ * com lazySet, entao a mao nao trava nem aloca, e quem le nunca bloqueia o
+ * jogo.
+ */
+public class MetricasMesa {
+
+	final int mesa;
+	final String[] nomes;
+	final AtomicLong maos = new AtomicLong();
+	final AtomicLongArray saldos;
+	final AtomicLongArray decisoes;
+	final AtomicLongArray latenciaTotalNanos;
+	final AtomicLongArray latenciaMaximaNanos;
+	final AtomicLongArray timeouts;
+
+	public MetricasMesa(int mesa, Controlador[] jogadores) {
+		this.mesa = mesa;
+		int n = jogadores.length;
+		nomes = new String[n];
+		for (int i = 0; i < n; i++) {
+			nomes[i] = jogadores[i].getName();
+		}
+		saldos = new AtomicLongArray(n);
+		decisoes = new AtomicLongArray(n);
+		latenciaTotalNanos = new AtomicLongArray(n);
+		latenciaMaximaNanos = new AtomicLongArray(n);
+		timeouts = new AtomicLongArray(n);
+	}
+
+	// thread do jogo, no fim de cada mao
+	void publicaMao(long mao, Controlador[] jogadores) {
+		for (int i = 0; i < jogadores.length; i++) {
+			saldos.lazySet(i, jogadores[i].saldo);
+		}
+		maos.lazySet(mao);
+	}
+
+	// thread do jogo, quando o agente nao respondeu a tempo
+	void timeout(int assento) {
+		timeouts.lazySet(assento, timeouts.get(assento) + 1);
+	}
+
+	// thread do Controlador do assento, depois de cada decisao
+	void decisao(int assento, long nanos) {
+		decisoes.lazySet(assento, decisoes.get(assento) + 1);
+		latenciaTotalNanos.lazySet(assento, latenciaTotalNanos.get(assento) + nanos);
+		if (nanos > latenciaMaximaNanos.get(assento))
+			latenciaMaximaNanos.lazySet(assento, nanos);
+	}
+
+	/**
+	 * Escreve a mesa em JSON
+	 * 
+	 * @param sb
+	 */
+	void json(StringBuilder sb) {
+		sb.append("{\"mesa\":").append(mesa).append(",\"maos\":").append(maos.get()).append(",\"jogadores\":[");
+		for (int i = 0; i < nomes.length; i++) {
+			long n = decisoes.get(i);
+			if (i > 0)
+				sb.append(',');
+			sb.append("{\"nome\":\"").append(nomes[i].replace("\"", "\\\"")).append('"');
+			sb.append(",\"saldo\":").append(saldos.get(i));
+			sb.append(",\"decisoes\":").append(n);
+			sb.append(",\"latenciaMediaMs\":").append(n == 0 ? 0 : latenciaTotalNanos.get(i) / n / 1e6);
+			sb.append(",\"latenciaMaximaMs\":").append(latenciaMaximaNanos.get(i) / 1e6);
+			sb.append(",\"timeouts\":").append(timeouts.get(i));
+			sb.append('}');
+		}
+		sb.append("]}");
+	}
+
+}
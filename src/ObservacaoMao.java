@@ -0,0 +1,71 @@
+
+/**
+ * Resultado de uma mao, visto por todos os agentes da mesa. Os arrays sao
+ * alocados uma vez por mesa e sobrescritos a cada mao; cada Controlador copia
+ * para os seus proprios buffers antes de entregar ao agente.
+ */
+public class ObservacaoMao {
+
+	// numero da mao (comeca em 1)
+	long mao;
+	int jogadores;
+	int apostaMaisAlta;
+	int pote;
+
+	// por assento
+	int[] primeirasApostas; // aposta da primeira rodada
+	int[] apostas; // total colocado no pote (com o complemento de quem pagou para ver)
+	boolean[] pagaramPraVer;
+	int[] pontos; // pontos do jogo no showdown ou -1 se desistiu/sem saldo
+	int[] premios;
+	int[] saldos;
+
+	public ObservacaoMao(int jogadores) {
+		this.jogadores = jogadores;
+		primeirasApostas = new int[jogadores];
+		apostas = new int[jogadores];
+		pagaramPraVer = new boolean[jogadores];
+		pontos = new int[jogadores];
+		premios = new int[jogadores];
+		saldos = new int[jogadores];
+	}
+
+	/**
+	 * Copia esta mao para outra observacao do mesmo numero de jogadores, sem
+	 * alocar
+	 * 
+	 * @param destino
+	 */
+	public void copia(ObservacaoMao destino) {
+		destino.mao = mao;
+		destino.apostaMaisAlta = apostaMaisAlta;
+		destino.pote = pote;
+		System.arraycopy(primeirasApostas, 0, destino.primeirasApostas, 0, jogadores);
+		System.arraycopy(apostas, 0, destino.apostas, 0, jogadores);
+		System.arraycopy(pagaramPraVer, 0, destino.pagaramPraVer, 0, jogadores);
+		System.arraycopy(pontos, 0, destino.pontos, 0, jogadores);
+		System.arraycopy(premios, 0, destino.premios, 0, jogadores);
+		System.arraycopy(saldos, 0, destino.saldos, 0, jogadores);
+	}
+
+	/**
+	 * Retorna true se o assento chegou ao showdown
+	 * 
+	 * @param assento
+	 * @return
+	 */
+	public boolean foiAoShowdown(int assento) {
+		return pontos[assento] >= 0;
+	}
+
+	/**
+	 * Retorna o lucro (ou prejuizo) do assento nesta mao
+	 * 
+	 * @param assento
+	 * @return
+	 */
+	public int lucro(int assento) {
+		return premios[assento] - apostas[assento];
+	}
+
+}
@@ -0,0 +1,62 @@
+/**
+ * Orcamento de tempo das decisoes de um agente numa mesa com threads. A mesa le
+ * as respostas miliSegundosDeIntervalo depois do pedido; o prazo passado ao
+ * agente e a parte dessa janela que ele pode usar para pensar, descontado o
+ * atraso que se observa entre o prazo e a resposta (acordar a thread, terminar
+ * a ultima rodada de calculo, gravar a resposta).
+ * 
+ * O orcamento sobe aos poucos e desce rapido: cada resposta dentro da janela
+ * devolve 1/16 do alvo, uma resposta fora da janela (que a mesa ja nao leu)
+ * corta o orcamento pela metade. Usado so pela thread do Controlador.
+ */
+public class OrcamentoDecisao {
+
+	static final double FRACAO_ALVO = 0.8; // da janela, o resto fica de margem
+	static final long MINIMO_NANOS = 100_000; // 0,1 ms
+
+	final long janelaNanos;
+	private final long alvoNanos;
+	private long orcamentoNanos;
+	private long atrasoNanos; // media movel do atraso da resposta depois do prazo
+
+	public OrcamentoDecisao(long janelaNanos) {
+		this.janelaNanos = janelaNanos;
+		alvoNanos = Math.max(MINIMO_NANOS, (long) (janelaNanos * FRACAO_ALVO));
+		orcamentoNanos = alvoNanos;
+	}
+
+	/**
+	 * Prazo (System.nanoTime) da decisao pedida em agendadoEm
+	 * 
+	 * @param agendadoEm
+	 * @return
+	 */
+	public long prazo(long agendadoEm) {
+		return agendadoEm + Math.max(MINIMO_NANOS, orcamentoNanos - atrasoNanos);
+	}
+
+	/**
+	 * Ajusta o orcamento com a resposta que o agente entregou em fim
+	 * 
+	 * @param agendadoEm
+	 * @param prazo      o que foi passado ao agente
+	 * @param fim
+	 */
+	public void responde(long agendadoEm, long prazo, long fim) {
+		long atraso = Math.max(0, fim - prazo);
+		atrasoNanos += (atraso - atrasoNanos) >> 3; // peso 1/8
+		if (fim - agendadoEm > janelaNanos)
+			orcamentoNanos = Math.max(MINIMO_NANOS, orcamentoNanos >> 1);
+		else
+			orcamentoNanos = Math.min(alvoNanos, orcamentoNanos + (alvoNanos >> 4));
+	}
+
+	public long orcamentoNanos() {
+		return orcamentoNanos;
+	}
+
+	public long atrasoNanos() {
+		return atrasoNanos;
+	}
+
+}
@@ -1,135 +1,155 @@
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.file.Path;
 
 public class Poker {
 
 	static final int saldoInicial = 1000;
+	// mais de 10 usa um sapato com varios baralhos; o descarte do
+	// AgenteProbabilistico continua contando um baralho, ver Mesa.baralhos
+	static final int assentos = 7;
 	static final long duracaoDoJogoEmSegundos = 2000;
 	static final long miliSegundosDeIntervalo = 500;
 	static final int apostaMinima = 10;
 	static final boolean verbose = false;
+	static final int maosEntreCheckpoints = 100;
+	static final String arquivoCheckpoint = "poker.checkpoint";
+	// poker com troca (draw), so com java -Dpoker.troca=true Poker
+	static final boolean trocaDeCartas = Boolean.getBoolean("poker.troca");
+	// historico das maos, so com java -Dpoker.maos=<arquivo> Poker
+	static final String arquivoMaos = System.getProperty("poker.maos");
+	// ServidorMetricas, so com java -Dpoker.metricas=<porta> Poker
+	static final int portaMetricas = Integer.getInteger("poker.metricas", 0);
+
+	/**
+	 * Para continuar um jogo interrompido: java Poker retomar [arquivo]
+	 * 
+	 * Opcoes: -Dpoker.troca=true (poker com troca), -Dpoker.maos=<arquivo>
+	 * (historico das maos), -Dpoker.metricas=<porta> (ServidorMetricas)
+	 */
+	public static void main(String[] args) throws InterruptedException, IOException {
+
+		Controlador[] jogadores = criaJogadores();
+
+		Mesa mesa = new Mesa(1, jogadores, System.nanoTime());
+		long tempoJaJogado = 0;
+		Path checkpoint = Path.of(args.length > 1 ? args[1] : arquivoCheckpoint);
+		if (args.length > 0 && args[0].equals("retomar")) {
+			Checkpoint c = Checkpoint.le(checkpoint);
+			c.restaura(jogadores);
+			mesa.semente = c.semente;
+			mesa.mao = c.mao;
+			tempoJaJogado = c.tempoDeJogo;
+			System.out.println("Retomando da mao " + mesa.mao + " com " + tempoJaJogado / 1000 + " segundos de jogo");
+		}
+		Path arquivoRatings = Path.of(RatingElo.arquivoPadrao);
+		RatingElo rating = RatingElo.le(arquivoRatings);
+		// rating do agente, nao do assento, para valer com outra disposicao da mesa
+		String[] agentes = new String[jogadores.length];
+		for (int i = 0; i < jogadores.length; i++) {
+			agentes[i] = jogadores[i].agente.getClass().getSimpleName();
+		}
+		mesa.rating = rating.lote(agentes, maosEntreCheckpoints);
 
-	public static void main(String[] args) throws InterruptedException {
-
-		Controlador[] jogadores = new Controlador[7];
-		jogadores[0] = new Controlador(new AgenteRandomico(), saldoInicial, "Rando 1");
-		jogadores[1] = new Controlador(new AgenteConstante(), saldoInicial, "Const 2");
-		jogadores[2] = new Controlador(new AgenteConstanteLento(miliSegundosDeIntervalo * 1000), saldoInicial,
-				"Lento 3");
-		jogadores[3] = new Controlador(new AgenteRandomico(), saldoInicial, "Rando 4");
-		jogadores[4] = new Controlador(new AgenteConstante(), saldoInicial, "Const 5");
-		jogadores[5] = new Controlador(new AgenteConstanteLento(miliSegundosDeIntervalo * 2000), saldoInicial,
-				"Lento 6");
-		jogadores[6] = new Controlador(new AgenteProbabilistico(), saldoInicial, "Agente Probabilistico 7");
+		ArquivoMaos.Escritor historico = null;
+		if (arquivoMaos != null) {
+			historico = new ArquivoMaos.Escritor(Path.of(arquivoMaos));
+			mesa.arquivaMaos(historico);
+		}
 
-		// Starta os agentes
-		for (int i = 0; i < jogadores.length; i++) {
-			jogadores[i].start();
+		Checkpoint.Gravador gravador = new Checkpoint.Gravador(checkpoint, arquivoRatings);
+		gravador.start();
+
+		if (portaMetricas > 0) {
+			try {
+				ServidorMetricas metricas = new ServidorMetricas(portaMetricas);
+				metricas.adiciona(mesa.metricas);
+				metricas.inicia();
+				System.out.println("Metricas em http://localhost:" + portaMetricas + "/metricas");
+			} catch (IOException e) {
+				System.out.println("ServidorMetricas nao iniciou: " + e.getMessage());
+			}
 		}
 
-		long inicio = System.currentTimeMillis();
+		mesa.inicia();
+
+		long inicio = System.currentTimeMillis() - tempoJaJogado;
 		while ((System.currentTimeMillis() - inicio) < duracaoDoJogoEmSegundos * 1000) {
 
 			System.out.println("Tempo de jogo: " + (System.currentTimeMillis() - inicio) / 1000 + " segundos");
 
-			if (verbose)
-				System.out.println("\n PRIMEIRA APOSTA");
-			// distribui as cartas
-			Baralho baralho = new Baralho();
-			Carta[][] cartas = new Carta[jogadores.length][];
-			int[] pontosJogos = new int[jogadores.length];
-			for (int i = 0; i < cartas.length; i++) {
-				cartas[i] = baralho.get5cartas();
-				jogadores[i].setCartas(Carta.copia(cartas[i]));
-				pontosJogos[i] = Avaliacao.avaliaJogo(cartas[i]).pontos;
-				if (jogadores[i].saldo == 0)
-					pontosJogos[i] = -1;
-				else
-					synchronized (jogadores[i]) {
-						jogadores[i].notify(); // Avisa que houve um agendamento.
-					}
+			mesa.jogaMao();
 
+			// mostra saldo
+			mostraSaldo(jogadores);
+
+			// grava o estado em segundo plano, sem parar o jogo; o lote da mesa so
+			// conta as maos que mudam o rating, entao e somado antes da foto
+			if (maosEntreCheckpoints > 0 && mesa.mao % maosEntreCheckpoints == 0) {
+				mesa.rating.descarrega();
+				gravador.agenda(Checkpoint.de(mesa.semente, mesa.mao, System.currentTimeMillis() - inicio, jogadores),
+						rating.foto());
 			}
-			// aguarda os agentes
-			Thread.sleep(miliSegundosDeIntervalo);
-
-			// apostas da partida
-			int[] apostas = new int[jogadores.length];
-			Arrays.fill(apostas, 0);
-			int apostaMaisAlta = 0;
-			for (int i = 0; i < jogadores.length; i++) {
-				// pega a aposta, deve ser no m�nino a aposta m�nima e no m�ximo o saldo
-				apostas[i] = Math.min(Math.max(apostaMinima, jogadores[i].aposta), jogadores[i].saldo);
-				// atualiza o saldo
-				jogadores[i].saldo -= apostas[i];
-
-				if (verbose)
-					System.out.println(Carta.printCartas(cartas[i]) + "\t" + jogadores[i].getName() + " - APOSTA "
-							+ apostas[i] + "\t" + (Avaliacao.avaliaJogo(cartas[i])));
-				// atualiza a aposta mais alta
-				apostaMaisAlta = Math.max(apostaMaisAlta, apostas[i]);
-			}
+		}
+		mesa.rating.descarrega();
+		gravador.encerra(Checkpoint.de(mesa.semente, mesa.mao, System.currentTimeMillis() - inicio, jogadores),
+				rating.foto());
+		if (historico != null)
+			historico.close();
+		rating.mostra();
 
-			// pergunta quem vai pagar para ver
-			for (int i = 0; i < jogadores.length; i++) {
-				jogadores[i].setPagaPraVer(apostaMaisAlta);
-				synchronized (jogadores[i]) {
-					jogadores[i].notify(); // Avisa que houve um agendamento.
-				}
-			}
+	}
 
-			if (verbose)
-				System.out.println("\n SEGUNDA APOSTA");
-			// aguarda os agentes
-			Thread.sleep(miliSegundosDeIntervalo);
-			// avalia os jogos
-			int pontosMaisAltos = -1;
-			for (int i = 0; i < jogadores.length; i++) {
-				// s� avalia quem paga para ver
-				if (jogadores[i].pagaPraVer || (apostas[i] == apostaMaisAlta)) {
-					int p = pontosJogos[i];
-					if (p > pontosMaisAltos)
-						pontosMaisAltos = p;
-
-					// ajusta as apostas
-					int apostaComplementar = apostaMaisAlta - apostas[i]; // calcula complemento
-					apostaComplementar = Math.min(jogadores[i].saldo, apostaComplementar); // limita a aposta ao saldo
-					apostas[i] += apostaComplementar; // atualiza o pote
-					// substrai do saldo
-					jogadores[i].saldo -= apostaComplementar;
-					if (verbose)
-						System.out.println(jogadores[i].getName() + " - APOSTA " + apostas[i]);
-				} else {
-					// tira os pontos do jogador que desistiu
-					pontosJogos[i] = -1;
-				}
-			}
-			// calcula a quantidade de cape�es que v�o dividir o pr�mio
-			int divisor = 0;
-			for (int i = 0; i < pontosJogos.length; i++) {
-				if (pontosJogos[i] == pontosMaisAltos)
-					divisor++;
-			}
-			// calcula o total do pote (soma das apostas)
-			int pote = 0;
-			for (int i = 0; i < apostas.length; i++) {
-				pote += apostas[i];
-			}
-			// paga aos campe�es
-			int premio = pote / divisor;
-			for (int i = 0; i < apostas.length; i++) {
-				if (pontosJogos[i] == pontosMaisAltos)
-					jogadores[i].saldo += premio;
-			}
+	/**
+	 * Jogadores da mesa padrao
+	 * 
+	 * @return
+	 */
+	static Controlador[] criaJogadores() {
+		return criaJogadores(assentos);
+	}
 
-			// mostra saldo
-			System.out.println("\n SALDO");
-			for (int i = 0; i < jogadores.length; i++) {
-				System.out.println(jogadores[i].getName() + " R$ " + jogadores[i].saldo);
+	/**
+	 * Jogadores de uma mesa com o numero de assentos informado, repetindo os 7
+	 * agentes da mesa padrao
+	 * 
+	 * @param assentos
+	 * @return
+	 */
+	static Controlador[] criaJogadores(int assentos) {
+		Controlador[] jogadores = new Controlador[assentos];
+		for (int i = 0; i < assentos; i++) {
+			int n = i + 1;
+			switch (i % 7) {
+			case 0:
+			case 3:
+				jogadores[i] = new Controlador(new AgenteRandomico(), saldoInicial, "Rando " + n);
+				break;
+			case 1:
+			case 4:
+				jogadores[i] = new Controlador(new AgenteConstante(), saldoInicial, "Const " + n);
+				break;
+			case 2:
+				jogadores[i] = new Controlador(new AgenteConstanteLento(miliSegundosDeIntervalo * 1000), saldoInicial,
+						"Lento " + n);
+				break;
+			case 5:
+				jogadores[i] = new Controlador(new AgenteConstanteLento(miliSegundosDeIntervalo * 2000), saldoInicial,
+						"Lento " + n);
+				break;
+			default:
+				jogadores[i] = new Controlador(new AgenteProbabilistico(), saldoInicial, "Agente Probabilistico " + n);
 			}
+		}
+		return jogadores;
+	}
 
-			System.out.println("\n");
+	static void mostraSaldo(Controlador[] jogadores) {
+		System.out.println("\n SALDO");
+		for (int i = 0; i < jogadores.length; i++) {
+			System.out.println(jogadores[i].getName() + " R$ " + jogadores[i].saldo);
 		}
 
+		System.out.println("\n");
 	}
 
 }
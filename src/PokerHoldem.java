@@ -0,0 +1,26 @@
+
+/**
+ * Jogo de Texas Hold'em com os mesmos agentes e regras de tempo do Poker
+ */
+public class PokerHoldem {
+
+	public static void main(String[] args) throws InterruptedException {
+
+		Controlador[] jogadores = Poker.criaJogadores();
+		MesaHoldem mesa = new MesaHoldem(1, jogadores, System.nanoTime());
+		mesa.inicia();
+
+		long inicio = System.currentTimeMillis();
+		while ((System.currentTimeMillis() - inicio) < Poker.duracaoDoJogoEmSegundos * 1000) {
+
+			System.out.println("Tempo de jogo: " + (System.currentTimeMillis() - inicio) / 1000 + " segundos");
+
+			mesa.jogaMao();
+
+			// mostra saldo
+			Poker.mostraSaldo(jogadores);
+		}
+
+	}
+
+}
@@ -0,0 +1,68 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Protocolo binario entre o jogo e os agentes remotos. Cada quadro tem o
+ * formato:
+ * 
+ * [int tamanho][byte tipo][int sequencia][dados]
+ * 
+ * onde tamanho conta os bytes depois dele. Cada decisao de um agente e um
+ * pedido e uma resposta com a mesma sequencia, entao varios pedidos podem ficar
+ * pendentes na mesma conexao.
+ */
+public class ProtocoloAgente {
+
+	static final int VERSAO = 1;
+
+	// agente -> jogo: [byte versao][byte tamanho do nome][nome]
+	static final byte OLA = 1;
+	// jogo -> agente: [byte quantidade][quantidade x (byte valor, byte naipe)]
+	static final byte PRIMEIRA_APOSTA = 2;
+	// jogo -> agente: [int apostaMaisAlta]
+	static final byte SEGUNDA_APOSTA = 3;
+	// agente -> jogo: [int aposta]
+	static final byte RESPOSTA_APOSTA = 4;
+	// agente -> jogo: [byte 0 ou 1]
+	static final byte RESPOSTA_PAGA = 5;
+
+	// tamanho + tipo + sequencia
+	static final int CABECALHO = 9;
+	static final int MAIOR_QUADRO = 1024;
+
+	/**
+	 * Escreve o cabecalho de um quadro com dados de tamanho tamanhoDados
+	 * 
+	 * @param buf
+	 * @param tipo
+	 * @param sequencia
+	 * @param tamanhoDados
+	 */
+	static void escreveCabecalho(ByteBuffer buf, byte tipo, int sequencia, int tamanhoDados) {
+		buf.putInt(5 + tamanhoDados);
+		buf.put(tipo);
+		buf.putInt(sequencia);
+	}
+
+	static void escreveCartas(ByteBuffer buf, Carta[] jogo) {
+		buf.put((byte) jogo.length);
+		for (int i = 0; i < jogo.length; i++) {
+			buf.put((byte) jogo[i].valor);
+			buf.put((byte) jogo[i].naipe);
+		}
+	}
+
+	static Carta[] leCartas(ByteBuffer buf) {
+		Carta[] jogo = new Carta[buf.get()];
+		for (int i = 0; i < jogo.length; i++) {
+			int valor = buf.get();
+			char naipe = (char) buf.get();
+			jogo[i] = new Carta(valor, naipe);
+		}
+		return jogo;
+	}
+
+	static int tamanhoCartas(Carta[] jogo) {
+		return 1 + 2 * jogo.length;
+	}
+
+}
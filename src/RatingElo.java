@@ -0,0 +1,314 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Rating Elo dos agentes, atualizado a cada mao sem reprocessar o historico.
+ * 
+ * Com varios jogadores na mao, a chance esperada de cada um levar o pote e a
+ * sua parte de 10^(rating/400) na soma da mesa, e quem leva divide 1 ponto.
+ * Assim a atualizacao e O(assentos) e a soma dos ajustes e zero.
+ * 
+ * Cada mesa acumula os ajustes no seu proprio Lote e so os soma aos ratings a
+ * cada tantas maos, com compareAndSet, entao mesas concorrentes nunca travam
+ * umas as outras.
+ * 
+ * Os ratings sao do agente (o tipo no Simulador, a classe no Poker), nao do
+ * assento, para valerem de uma mesa para outra.
+ * 
+ * java RatingElo [arquivo] mostra o ranking gravado
+ */
+public class RatingElo {
+
+	static final int MAGICO = 0x504b5254; // "PKRT"
+	static final int VERSAO = 1;
+	static final double RATING_INICIAL = 1500;
+	static final double K = 4;
+	static final int MAX_AGENTES = 4096;
+	static final String arquivoPadrao = "poker.ratings";
+
+	// 10^(r/400) = e^(r*ESCALA)
+	private static final double ESCALA = Math.log(10) / 400;
+
+	private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+	// agentes ja publicados: so aumenta depois que nome e rating foram gravados
+	private final AtomicInteger quantidade = new AtomicInteger();
+	private final AtomicReferenceArray<String> nomes = new AtomicReferenceArray<>(MAX_AGENTES);
+	private final AtomicLongArray ratings = new AtomicLongArray(MAX_AGENTES); // bits do double
+	private final AtomicLongArray maos = new AtomicLongArray(MAX_AGENTES);
+
+	/**
+	 * Retorna o id do agente, cadastrando com o rating inicial se for novo
+	 * 
+	 * @param nome
+	 * @return
+	 */
+	public int id(String nome) {
+		return ids.computeIfAbsent(nome, n -> cadastra(n, RATING_INICIAL, 0));
+	}
+
+	// sincronizado entre cadastros; quem le ate quantidade ve os nomes ja gravados
+	private synchronized int cadastra(String nome, double rating, long maosJogadas) {
+		int id = quantidade.get();
+		if (id >= MAX_AGENTES)
+			throw new IllegalStateException("Mais de " + MAX_AGENTES + " agentes no rating");
+		ratings.set(id, Double.doubleToRawLongBits(rating));
+		maos.set(id, maosJogadas);
+		nomes.set(id, nome);
+		quantidade.set(id + 1);
+		return id;
+	}
+
+	public double rating(int id) {
+		return Double.longBitsToDouble(ratings.get(id));
+	}
+
+	public double rating(String nome) {
+		Integer id = ids.get(nome);
+		return id == null ? RATING_INICIAL : rating(id);
+	}
+
+	public long maos(int id) {
+		return maos.get(id);
+	}
+
+	private void soma(int id, double delta) {
+		long atual;
+		do {
+			atual = ratings.get(id);
+		} while (!ratings.compareAndSet(id, atual,
+				Double.doubleToRawLongBits(Double.longBitsToDouble(atual) + delta)));
+	}
+
+	/**
+	 * Cria o acumulador de uma mesa
+	 * 
+	 * @param agentes nome do agente de cada assento
+	 * @param tamanho maos acumuladas antes de somar aos ratings
+	 * @return
+	 */
+	public Lote lote(String[] agentes, int tamanho) {
+		return new Lote(agentes, tamanho);
+	}
+
+	/**
+	 * Ajustes de uma mesa ainda nao somados aos ratings. Usado so pela thread da
+	 * mesa.
+	 * 
+	 * Um agente em varios assentos conta como um so: a parte esperada dele e a
+	 * soma das partes dos seus assentos e o resultado e a soma do que eles
+	 * levaram, entao uma mao do agente contra ele mesmo nao muda o rating.
+	 */
+	public class Lote {
+
+		private final int[] agenteDoAssento; // posicao do agente em ids
+		private final int[] ids; // agentes distintos da mesa
+		private final double[] ajustes;
+		private final int[] maosPendentes;
+		private final double[] forcas;
+		private final int[] assentosNaMao;
+		private final double[] resultados;
+		private final int tamanho;
+		private int pendentes;
+
+		private Lote(String[] agentes, int tamanho) {
+			int n = agentes.length;
+			agenteDoAssento = new int[n];
+			int[] distintos = new int[n];
+			int quantos = 0;
+			for (int i = 0; i < n; i++) {
+				int id = id(agentes[i]);
+				int a = 0;
+				while (a < quantos && distintos[a] != id)
+					a++;
+				if (a == quantos)
+					distintos[quantos++] = id;
+				agenteDoAssento[i] = a;
+			}
+			ids = Arrays.copyOf(distintos, quantos);
+			ajustes = new double[quantos];
+			maosPendentes = new int[quantos];
+			forcas = new double[quantos];
+			assentosNaMao = new int[quantos];
+			resultados = new double[quantos];
+			this.tamanho = tamanho;
+		}
+
+		/**
+		 * Atualiza com o resultado de uma mao. Quem estava sem saldo nao conta.
+		 * 
+		 * @param observacao
+		 */
+		public void registra(ObservacaoMao observacao) {
+			Arrays.fill(assentosNaMao, 0);
+			Arrays.fill(resultados, 0);
+			int vencedores = 0;
+			for (int i = 0; i < agenteDoAssento.length; i++) {
+				if (observacao.primeirasApostas[i] == 0)
+					continue;
+				assentosNaMao[agenteDoAssento[i]]++;
+				if (observacao.premios[i] > 0)
+					vencedores++;
+			}
+			double soma = 0;
+			int participantes = 0;
+			for (int a = 0; a < ids.length; a++) {
+				if (assentosNaMao[a] == 0)
+					continue;
+				// o rating visto pela mesa inclui o que ela ainda nao somou
+				forcas[a] = Math.exp((rating(ids[a]) + ajustes[a] - RATING_INICIAL) * ESCALA);
+				soma += assentosNaMao[a] * forcas[a];
+				participantes++;
+			}
+			if (participantes < 2 || vencedores == 0)
+				return;
+			double ponto = 1.0 / vencedores;
+			for (int i = 0; i < agenteDoAssento.length; i++) {
+				if (observacao.primeirasApostas[i] != 0 && observacao.premios[i] > 0)
+					resultados[agenteDoAssento[i]] += ponto;
+			}
+			for (int a = 0; a < ids.length; a++) {
+				if (assentosNaMao[a] == 0)
+					continue;
+				ajustes[a] += K * (resultados[a] - assentosNaMao[a] * forcas[a] / soma);
+				maosPendentes[a]++;
+			}
+			if (++pendentes >= tamanho)
+				descarrega();
+		}
+
+		/**
+		 * Soma os ajustes pendentes aos ratings
+		 */
+		public void descarrega() {
+			for (int a = 0; a < ids.length; a++) {
+				if (maosPendentes[a] == 0)
+					continue;
+				soma(ids[a], ajustes[a]);
+				maos.getAndAdd(ids[a], maosPendentes[a]);
+				ajustes[a] = 0;
+				maosPendentes[a] = 0;
+			}
+			pendentes = 0;
+		}
+
+	}
+
+	/**
+	 * Copia dos ratings, para gravar em outra thread sem ler os ratings enquanto
+	 * uma mesa descarrega. Ajustes ainda nos Lotes nao entram.
+	 * 
+	 * @return
+	 */
+	public Foto foto() {
+		int n = Math.min(quantidade.get(), MAX_AGENTES);
+		Foto f = new Foto(n);
+		for (int i = 0; i < n; i++) {
+			f.nomes[i] = nomes.get(i);
+			f.ratings[i] = rating(i);
+			f.maos[i] = maos.get(i);
+		}
+		return f;
+	}
+
+	public static class Foto {
+
+		final String[] nomes;
+		final double[] ratings;
+		final long[] maos;
+
+		private Foto(int n) {
+			nomes = new String[n];
+			ratings = new double[n];
+			maos = new long[n];
+		}
+
+		/**
+		 * Grava em um arquivo temporario e troca pelo definitivo
+		 * 
+		 * @param arquivo
+		 * @throws IOException
+		 */
+		public void grava(Path arquivo) throws IOException {
+			Path temp = arquivo.resolveSibling(arquivo.getFileName() + ".tmp");
+			try (DataOutputStream out = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(temp)))) {
+				out.writeInt(MAGICO);
+				out.writeInt(VERSAO);
+				out.writeInt(nomes.length);
+				for (int i = 0; i < nomes.length; i++) {
+					out.writeUTF(nomes[i]);
+					out.writeDouble(ratings[i]);
+					out.writeLong(maos[i]);
+				}
+			}
+			Files.move(temp, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		}
+
+	}
+
+	/**
+	 * Grava em um arquivo temporario e troca pelo definitivo. Ajustes ainda nos
+	 * Lotes nao entram.
+	 * 
+	 * @param arquivo
+	 * @throws IOException
+	 */
+	public void grava(Path arquivo) throws IOException {
+		foto().grava(arquivo);
+	}
+
+	/**
+	 * Le os ratings gravados ou comeca do zero se o arquivo nao existir
+	 * 
+	 * @param arquivo
+	 * @return
+	 * @throws IOException
+	 */
+	public static RatingElo le(Path arquivo) throws IOException {
+		RatingElo r = new RatingElo();
+		if (!Files.exists(arquivo))
+			return r;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo)))) {
+			if (in.readInt() != MAGICO || in.readInt() != VERSAO)
+				throw new IOException(arquivo + " nao e um arquivo de ratings valido");
+			int n = in.readInt();
+			for (int i = 0; i < n; i++) {
+				String nome = in.readUTF();
+				double rating = in.readDouble();
+				long maosJogadas = in.readLong();
+				r.ids.put(nome, r.cadastra(nome, rating, maosJogadas));
+			}
+		}
+		return r;
+	}
+
+	public void mostra() {
+		int n = Math.min(quantidade.get(), MAX_AGENTES);
+		Integer[] ordem = new Integer[n];
+		for (int i = 0; i < n; i++) {
+			ordem[i] = i;
+		}
+		Arrays.sort(ordem, Comparator.comparingDouble(i -> -rating(i)));
+		System.out.println("\n RATING");
+		for (int i : ordem) {
+			System.out.printf("%-30s %8.1f %12d maos%n", nomes.get(i), rating(i), maos.get(i));
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		le(Path.of(args.length > 0 ? args[0] : arquivoPadrao)).mostra();
+	}
+
+}
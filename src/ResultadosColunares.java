@@ -0,0 +1,442 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Resultados das maos em colunas: um array primitivo por campo (assento,
+ * agente, categoria, pontos, aposta, aposta mais alta da mao, pagou para ver e
+ * lucro), uma linha por jogador em cada mao.
+ * 
+ * As colunas crescem em blocos de 64K linhas, e com maxBlocos cheio o bloco
+ * mais antigo e descartado, entao a memoria fica limitada. As consultas leem
+ * uma coluna inteira do bloco por vez em um int[] e filtram/agrupam em lacos
+ * simples, com os blocos em paralelo.
+ * 
+ * Uma consulta como "taxa de vitorias do AgenteProbabilistico com Par, por
+ * faixa de aposta mais alta":
+ * 
+ * resultados.consulta().onde(AGENTE, resultados.agente("AgenteProbabilistico"))
+ * .onde(CATEGORIA, 1).agrupa(APOSTA_MAIS_ALTA, 50).executa()
+ * 
+ * java ResultadosColunares <agentes separados por virgula> <partidas> <maos por
+ * partida> simula e faz essa consulta
+ */
+public class ResultadosColunares {
+
+	// colunas
+	static final int ASSENTO = 0;
+	static final int AGENTE = 1;
+	static final int CATEGORIA = 2;
+	static final int PONTOS = 3;
+	static final int APOSTA = 4;
+	static final int APOSTA_MAIS_ALTA = 5;
+	static final int PAGOU = 6;
+	static final int LUCRO = 7;
+	static final String[] nomesColunas = { "assento", "agente", "categoria", "pontos", "aposta", "apostaMaisAlta",
+			"pagou", "lucro" };
+
+	static final int BITS_BLOCO = 16;
+	static final int BLOCO = 1 << BITS_BLOCO;
+	// 21 bytes por linha: 256 blocos sao 16M linhas em cerca de 350 MB
+	static final int MAX_BLOCOS_PADRAO = 256;
+
+	private final int maxBlocos;
+	private final ArrayList<Bloco> blocos = new ArrayList<>();
+	private final HashMap<String, Integer> ids = new HashMap<>();
+	private final ArrayList<String> agentes = new ArrayList<>();
+	private long descartadas;
+
+	// valores e selecao de cada thread de consulta
+	private static final ThreadLocal<int[][]> temporarios = ThreadLocal
+			.withInitial(() -> new int[][] { new int[BLOCO], new int[BLOCO], new int[BLOCO] });
+
+	/**
+	 * @param maxBlocos limite de blocos de 64K linhas guardados
+	 */
+	public ResultadosColunares(int maxBlocos) {
+		this.maxBlocos = maxBlocos;
+	}
+
+	static class Bloco {
+		final byte[] assentos = new byte[BLOCO];
+		final short[] agentes = new short[BLOCO];
+		final byte[] categorias = new byte[BLOCO];
+		final int[] pontos = new int[BLOCO];
+		final int[] apostas = new int[BLOCO];
+		final int[] apostasMaisAltas = new int[BLOCO];
+		final boolean[] pagou = new boolean[BLOCO];
+		final int[] lucros = new int[BLOCO];
+		// as linhas abaixo de tamanho ja estao completas para quem le
+		volatile int tamanho;
+
+		// copia a coluna para um int[]
+		void le(int coluna, int[] destino, int n) {
+			switch (coluna) {
+			case ASSENTO:
+				for (int i = 0; i < n; i++)
+					destino[i] = assentos[i];
+				break;
+			case AGENTE:
+				for (int i = 0; i < n; i++)
+					destino[i] = agentes[i];
+				break;
+			case CATEGORIA:
+				for (int i = 0; i < n; i++)
+					destino[i] = categorias[i];
+				break;
+			case PONTOS:
+				System.arraycopy(pontos, 0, destino, 0, n);
+				break;
+			case APOSTA:
+				System.arraycopy(apostas, 0, destino, 0, n);
+				break;
+			case APOSTA_MAIS_ALTA:
+				System.arraycopy(apostasMaisAltas, 0, destino, 0, n);
+				break;
+			case PAGOU:
+				for (int i = 0; i < n; i++)
+					destino[i] = pagou[i] ? 1 : 0;
+				break;
+			case LUCRO:
+				System.arraycopy(lucros, 0, destino, 0, n);
+				break;
+			default:
+				throw new IllegalArgumentException("Coluna " + coluna);
+			}
+		}
+	}
+
+	/**
+	 * Retorna o id do agente, cadastrando se for novo
+	 * 
+	 * @param nome
+	 * @return
+	 */
+	public synchronized int agente(String nome) {
+		Integer id = ids.get(nome);
+		if (id == null) {
+			id = agentes.size();
+			if (id > Short.MAX_VALUE)
+				throw new IllegalStateException("Agentes demais nos resultados");
+			ids.put(nome, id);
+			agentes.add(nome);
+		}
+		return id;
+	}
+
+	public synchronized String nomeAgente(int id) {
+		return agentes.get(id);
+	}
+
+	/**
+	 * Acrescenta uma linha por jogador que tinha saldo na mao. Os jogos de quem
+	 * desistiu tambem sao avaliados, para a categoria valer para todos.
+	 * 
+	 * @param observacao
+	 * @param cartas     cartas de cada assento
+	 * @param agentes    id do agente de cada assento
+	 */
+	public synchronized void registra(ObservacaoMao observacao, Carta[][] cartas, int[] agentes) {
+		for (int i = 0; i < observacao.jogadores; i++) {
+			if (observacao.primeirasApostas[i] == 0)
+				continue;
+			Bloco b = blocoParaEscrita();
+			int linha = b.tamanho;
+			int pontos = observacao.foiAoShowdown(i) ? observacao.pontos[i] : Avaliacao.pontos(cartas[i]);
+			b.assentos[linha] = (byte) i;
+			b.agentes[linha] = (short) agentes[i];
+			b.categorias[linha] = (byte) Avaliacao.categoria(pontos);
+			b.pontos[linha] = pontos;
+			b.apostas[linha] = observacao.apostas[i];
+			b.apostasMaisAltas[linha] = observacao.apostaMaisAlta;
+			b.pagou[linha] = observacao.pagaramPraVer[i];
+			b.lucros[linha] = observacao.lucro(i);
+			b.tamanho = linha + 1;
+		}
+	}
+
+	private Bloco blocoParaEscrita() {
+		Bloco b = blocos.isEmpty() ? null : blocos.get(blocos.size() - 1);
+		if (b == null || b.tamanho == BLOCO) {
+			if (blocos.size() == maxBlocos) {
+				descartadas += BLOCO;
+				blocos.remove(0);
+			}
+			b = new Bloco();
+			blocos.add(b);
+		}
+		return b;
+	}
+
+	public synchronized long linhas() {
+		long n = 0;
+		for (Bloco b : blocos) {
+			n += b.tamanho;
+		}
+		return n;
+	}
+
+	/**
+	 * Linhas descartadas por causa do limite de blocos
+	 * 
+	 * @return
+	 */
+	public synchronized long descartadas() {
+		return descartadas;
+	}
+
+	private synchronized Bloco[] blocos() {
+		return blocos.toArray(new Bloco[0]);
+	}
+
+	public Consulta consulta() {
+		return new Consulta();
+	}
+
+	/**
+	 * Filtros por faixa de valores, agrupamento opcional por faixas de uma coluna
+	 * e soma de uma coluna (o lucro, por padrao)
+	 */
+	public class Consulta {
+
+		private int filtros;
+		private int[] colunasFiltro = new int[4];
+		private int[] minimos = new int[4];
+		private int[] maximos = new int[4];
+		private int colunaGrupo = -1;
+		private int largura = 1;
+		private int colunaSoma = LUCRO;
+
+		/**
+		 * So linhas com minimo <= coluna <= maximo
+		 * 
+		 * @param coluna
+		 * @param minimo
+		 * @param maximo
+		 * @return
+		 */
+		public Consulta onde(int coluna, int minimo, int maximo) {
+			if (filtros == colunasFiltro.length) {
+				colunasFiltro = Arrays.copyOf(colunasFiltro, filtros * 2);
+				minimos = Arrays.copyOf(minimos, filtros * 2);
+				maximos = Arrays.copyOf(maximos, filtros * 2);
+			}
+			colunasFiltro[filtros] = coluna;
+			minimos[filtros] = minimo;
+			maximos[filtros] = maximo;
+			filtros++;
+			return this;
+		}
+
+		public Consulta onde(int coluna, int valor) {
+			return onde(coluna, valor, valor);
+		}
+
+		/**
+		 * Agrupa por faixas de largura valores da coluna
+		 * 
+		 * @param coluna
+		 * @param largura
+		 * @return
+		 */
+		public Consulta agrupa(int coluna, int largura) {
+			colunaGrupo = coluna;
+			this.largura = largura;
+			return this;
+		}
+
+		public Consulta agrupa(int coluna) {
+			return agrupa(coluna, 1);
+		}
+
+		public Consulta soma(int coluna) {
+			colunaSoma = coluna;
+			return this;
+		}
+
+		public Agregado executa() {
+			Bloco[] bs = blocos();
+			return IntStream.range(0, bs.length).parallel().mapToObj(i -> executa(bs[i]))
+					.reduce(Agregado::junta).orElseGet(() -> new Agregado(largura));
+		}
+
+		private Agregado executa(Bloco b) {
+			int[][] t = temporarios.get();
+			int[] valores = t[0];
+			int[] selecao = t[1];
+			int[] chaves = t[2];
+			int n = b.tamanho;
+
+			// selecao: indices das linhas que passam em todos os filtros
+			int k = n;
+			for (int i = 0; i < n; i++) {
+				selecao[i] = i;
+			}
+			for (int f = 0; f < filtros; f++) {
+				b.le(colunasFiltro[f], valores, n);
+				int minimo = minimos[f];
+				int maximo = maximos[f];
+				int m = 0;
+				for (int j = 0; j < k; j++) {
+					int linha = selecao[j];
+					int v = valores[linha];
+					selecao[m] = linha;
+					m += (v >= minimo & v <= maximo) ? 1 : 0;
+				}
+				k = m;
+			}
+
+			Agregado a = new Agregado(largura);
+			if (k == 0)
+				return a;
+			// chave do grupo de cada linha selecionada
+			if (colunaGrupo < 0) {
+				Arrays.fill(chaves, 0, k, 0);
+			} else {
+				b.le(colunaGrupo, valores, n);
+				for (int j = 0; j < k; j++) {
+					chaves[j] = Math.floorDiv(valores[selecao[j]], largura);
+				}
+			}
+			int menor = Integer.MAX_VALUE, maior = Integer.MIN_VALUE;
+			for (int j = 0; j < k; j++) {
+				menor = Math.min(menor, chaves[j]);
+				maior = Math.max(maior, chaves[j]);
+			}
+			a.garante(menor, maior);
+			b.le(colunaSoma, valores, n);
+			int base = a.base;
+			for (int j = 0; j < k; j++) {
+				int g = chaves[j] - base;
+				long v = valores[selecao[j]];
+				a.linhas[g]++;
+				a.soma[g] += v;
+				a.positivos[g] += v > 0 ? 1 : 0;
+			}
+			return a;
+		}
+
+	}
+
+	/**
+	 * Resultado de uma consulta: linhas, soma e quantas linhas com valor positivo
+	 * (vitorias, quando a soma e do lucro) por grupo
+	 */
+	public static class Agregado {
+
+		final int largura;
+		int base; // chave do primeiro grupo
+		long[] linhas = new long[0];
+		long[] soma = new long[0];
+		long[] positivos = new long[0];
+
+		Agregado(int largura) {
+			this.largura = largura;
+		}
+
+		// amplia os arrays para as chaves de menor a maior
+		void garante(int menor, int maior) {
+			// vazio: base ainda nao quer dizer nada, nao ha o que copiar
+			if (linhas.length == 0) {
+				int n = maior - menor + 1;
+				linhas = new long[n];
+				soma = new long[n];
+				positivos = new long[n];
+				base = menor;
+				return;
+			}
+			menor = Math.min(menor, base);
+			maior = Math.max(maior, base + linhas.length - 1);
+			int n = maior - menor + 1;
+			if (n == linhas.length)
+				return;
+			long[] l = new long[n], s = new long[n], p = new long[n];
+			int deslocamento = base - menor;
+			System.arraycopy(linhas, 0, l, deslocamento, linhas.length);
+			System.arraycopy(soma, 0, s, deslocamento, soma.length);
+			System.arraycopy(positivos, 0, p, deslocamento, positivos.length);
+			linhas = l;
+			soma = s;
+			positivos = p;
+			base = menor;
+		}
+
+		Agregado junta(Agregado outro) {
+			if (outro.linhas.length == 0)
+				return this;
+			garante(outro.base, outro.base + outro.linhas.length - 1);
+			int deslocamento = outro.base - base;
+			for (int i = 0; i < outro.linhas.length; i++) {
+				linhas[i + deslocamento] += outro.linhas[i];
+				soma[i + deslocamento] += outro.soma[i];
+				positivos[i + deslocamento] += outro.positivos[i];
+			}
+			return this;
+		}
+
+		public long totalLinhas() {
+			long t = 0;
+			for (long l : linhas) {
+				t += l;
+			}
+			return t;
+		}
+
+		public void mostra() {
+			System.out.printf("%-16s %12s %12s %10s %10s%n", "grupo", "linhas", "soma", "media", "positivos");
+			for (int i = 0; i < linhas.length; i++) {
+				if (linhas[i] == 0)
+					continue;
+				long de = (long) (base + i) * largura;
+				String grupo = largura == 1 ? String.valueOf(de) : de + ".." + (de + largura - 1);
+				System.out.printf("%-16s %12d %12d %10.3f %9.1f%%%n", grupo, linhas[i], soma[i],
+						(double) soma[i] / linhas[i], 100.0 * positivos[i] / linhas[i]);
+			}
+		}
+
+	}
+
+	// grupos que nao comecam em 0 e juntas de faixas separadas
+	private static void confereAgregado() {
+		Agregado a = new Agregado(1);
+		a.garante(3, 5);
+		a.linhas[0] = 1;
+		a.linhas[2] = 2;
+		Agregado b = new Agregado(1);
+		b.garante(-4, -2);
+		b.linhas[1] = 4;
+		a.junta(b).junta(new Agregado(1));
+		// chaves -4..5: -3 na posicao 1, 3 na 7 e 5 na 9
+		if (a.base != -4 || a.linhas.length != 10 || a.linhas[1] != 4 || a.linhas[7] != 1 || a.linhas[9] != 2
+				|| a.totalLinhas() != 7)
+			throw new IllegalStateException("Agregado: grupos fora do lugar");
+	}
+
+	public static void main(String[] args) {
+		confereAgregado();
+		Simulador simulador = new Simulador(args[0].split(","), Integer.parseInt(args[2]));
+		simulador.resultados = new ResultadosColunares(MAX_BLOCOS_PADRAO);
+		long inicio = System.currentTimeMillis();
+		simulador.simula(0, Long.parseLong(args[1]));
+		ResultadosColunares r = simulador.resultados;
+		System.out.println(r.linhas() + " linhas em " + (System.currentTimeMillis() - inicio) + " ms");
+
+		inicio = System.nanoTime();
+		Agregado a = r.consulta().onde(AGENTE, r.agente("AgenteProbabilistico")).onde(CATEGORIA, 1)
+				.agrupa(APOSTA_MAIS_ALTA, 50).executa();
+		System.out.println("\n AgenteProbabilistico com Par, lucro por aposta mais alta ("
+				+ (System.nanoTime() - inicio) / 1000000 + " ms)");
+		a.mostra();
+
+		inicio = System.nanoTime();
+		a = r.consulta().agrupa(CATEGORIA).executa();
+		System.out.println("\n Lucro por categoria (" + (System.nanoTime() - inicio) / 1000000 + " ms)");
+		a.mostra();
+
+		a = r.consulta().onde(CATEGORIA, 1).agrupa(CATEGORIA).executa();
+		System.out.println("\n Lucro com Par");
+		a.mostra();
+	}
+
+}
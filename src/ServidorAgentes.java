@@ -0,0 +1,389 @@
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Servidor de agentes remotos. Uma unica thread com um Selector atende todas as
+ * conexoes (TCP em localhost ou socket Unix), escreve os pedidos das
+ * AgenteRemoto, le as respostas e expira os pedidos que passaram do prazo.
+ * 
+ * Uso:
+ * 
+ * ServidorAgentes servidor = ServidorAgentes.tcp(7000);
+ * 
+ * servidor.start();
+ * 
+ * AgenteRemoto agente = servidor.aguardaAgente(60000);
+ * 
+ * jogadores[i] = new Controlador(agente, saldoInicial, agente.getNome());
+ * 
+ * e em outro processo: java ClienteAgente 7000 AgenteConstante
+ */
+public class ServidorAgentes extends Thread {
+
+	private final Selector selector;
+	private final ServerSocketChannel servidor;
+	private final long prazoEmMilis;
+
+	// pedidos vindos das threads dos Controladores
+	private final ConcurrentLinkedQueue<Pedido> entrada = new ConcurrentLinkedQueue<>();
+	// agentes que ja se apresentaram e ainda nao foram entregues ao jogo
+	private final LinkedBlockingQueue<AgenteRemoto> novos = new LinkedBlockingQueue<>();
+	// pedidos ordenados pelo prazo (so usado pela thread do servidor). Quem ja foi
+	// respondido fica na fila e so sai quando chega ao topo (remocao preguicosa),
+	// entao cada resposta custa O(1) e nao O(pendentes)
+	private final PriorityQueue<Pedido> prazos = new PriorityQueue<>((a, b) -> Long.compare(a.prazo, b.prazo));
+
+	private volatile boolean ativo = true;
+
+	private ServidorAgentes(ServerSocketChannel servidor, long prazoEmMilis) throws IOException {
+		super("ServidorAgentes");
+		setDaemon(true);
+		this.servidor = servidor;
+		this.prazoEmMilis = prazoEmMilis;
+		selector = Selector.open();
+		servidor.configureBlocking(false);
+		servidor.register(selector, SelectionKey.OP_ACCEPT);
+	}
+
+	/**
+	 * Abre o servidor em localhost na porta informada
+	 * 
+	 * @param porta
+	 * @return
+	 * @throws IOException
+	 */
+	public static ServidorAgentes tcp(int porta) throws IOException {
+		ServerSocketChannel canal = ServerSocketChannel.open();
+		canal.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta), 1024);
+		return new ServidorAgentes(canal, Poker.miliSegundosDeIntervalo);
+	}
+
+	/**
+	 * Abre o servidor em um socket Unix no caminho informado
+	 * 
+	 * @param caminho
+	 * @return
+	 * @throws IOException
+	 */
+	public static ServidorAgentes unix(Path caminho) throws IOException {
+		Files.deleteIfExists(caminho);
+		ServerSocketChannel canal = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		canal.bind(UnixDomainSocketAddress.of(caminho), 1024);
+		return new ServidorAgentes(canal, Poker.miliSegundosDeIntervalo);
+	}
+
+	public SocketAddress getEndereco() throws IOException {
+		return servidor.getLocalAddress();
+	}
+
+	/**
+	 * Aguarda o proximo agente remoto se apresentar
+	 * 
+	 * @param timeoutEmMilis
+	 * @return o agente ou null se ninguem se conectou a tempo
+	 * @throws InterruptedException
+	 */
+	public AgenteRemoto aguardaAgente(long timeoutEmMilis) throws InterruptedException {
+		return novos.poll(timeoutEmMilis, TimeUnit.MILLISECONDS);
+	}
+
+	public void encerra() {
+		ativo = false;
+		selector.wakeup();
+	}
+
+	// chamado pelas threads dos Controladores
+	void envia(Pedido pedido) {
+		if (pedido.conexao.fechada) {
+			pedido.completa(0, false);
+			return;
+		}
+		entrada.add(pedido);
+		selector.wakeup();
+	}
+
+	@Override
+	public void run() {
+		try {
+			while (ativo) {
+				long espera = 0;
+				Pedido proximo;
+				while ((proximo = prazos.peek()) != null && proximo.pronto())
+					prazos.poll();
+				if (proximo != null)
+					espera = Math.max(1, TimeUnit.NANOSECONDS.toMillis(proximo.prazo - System.nanoTime()) + 1);
+				selector.select(espera);
+
+				Pedido pedido;
+				while ((pedido = entrada.poll()) != null)
+					escreve(pedido);
+
+				Iterator<SelectionKey> chaves = selector.selectedKeys().iterator();
+				while (chaves.hasNext()) {
+					SelectionKey chave = chaves.next();
+					chaves.remove();
+					try {
+						if (chave.isAcceptable())
+							aceita();
+						else {
+							Conexao conexao = (Conexao) chave.attachment();
+							if (chave.isReadable())
+								le(conexao);
+							if (chave.isValid() && chave.isWritable())
+								descarrega(conexao);
+						}
+					} catch (IOException | RuntimeException e) {
+						// um cliente com problema so derruba a propria conexao, nunca o servidor
+						if (chave.attachment() != null)
+							fecha((Conexao) chave.attachment());
+					}
+				}
+
+				expira(System.nanoTime());
+			}
+			selector.close();
+			servidor.close();
+		} catch (IOException e) {
+			System.out.println("ServidorAgentes: " + e.getMessage());
+		}
+	}
+
+	private void aceita() throws IOException {
+		SocketChannel canal = servidor.accept();
+		if (canal == null)
+			return;
+		canal.configureBlocking(false);
+		Conexao conexao = new Conexao(canal);
+		conexao.chave = canal.register(selector, SelectionKey.OP_READ, conexao);
+	}
+
+	private void escreve(Pedido pedido) {
+		Conexao conexao = pedido.conexao;
+		if (conexao.fechada) {
+			pedido.completa(0, false);
+			return;
+		}
+		pedido.sequencia = ++conexao.sequencia;
+		ByteBuffer buf;
+		if (pedido.tipo == ProtocoloAgente.PRIMEIRA_APOSTA) {
+			int tamanho = ProtocoloAgente.tamanhoCartas(pedido.jogo);
+			buf = conexao.reserva(ProtocoloAgente.CABECALHO + tamanho);
+			ProtocoloAgente.escreveCabecalho(buf, pedido.tipo, pedido.sequencia, tamanho);
+			ProtocoloAgente.escreveCartas(buf, pedido.jogo);
+		} else {
+			buf = conexao.reserva(ProtocoloAgente.CABECALHO + 4);
+			ProtocoloAgente.escreveCabecalho(buf, pedido.tipo, pedido.sequencia, 4);
+			buf.putInt(pedido.valor);
+		}
+		conexao.pendentes.put(pedido.sequencia, pedido);
+		prazos.add(pedido);
+		try {
+			descarrega(conexao);
+		} catch (IOException e) {
+			fecha(conexao);
+		}
+	}
+
+	private void descarrega(Conexao conexao) throws IOException {
+		ByteBuffer buf = conexao.escrita;
+		buf.flip();
+		conexao.canal.write(buf);
+		buf.compact();
+		// so pede OP_WRITE enquanto sobrar algo para escrever
+		int interesse = SelectionKey.OP_READ;
+		if (buf.position() > 0)
+			interesse |= SelectionKey.OP_WRITE;
+		conexao.chave.interestOps(interesse);
+	}
+
+	private void le(Conexao conexao) throws IOException {
+		ByteBuffer buf = conexao.leitura;
+		if (conexao.canal.read(buf) < 0) {
+			fecha(conexao);
+			return;
+		}
+		buf.flip();
+		while (buf.remaining() >= 4) {
+			int tamanho = buf.getInt(buf.position());
+			if (tamanho < 5 || tamanho > ProtocoloAgente.MAIOR_QUADRO) {
+				fecha(conexao);
+				return;
+			}
+			if (buf.remaining() < 4 + tamanho)
+				break;
+			int fim = buf.position() + 4 + tamanho;
+			buf.getInt();
+			byte tipo = buf.get();
+			int sequencia = buf.getInt();
+			trata(conexao, tipo, sequencia, tamanho - 5, buf);
+			if (conexao.fechada)
+				return;
+			buf.position(fim);
+		}
+		buf.compact();
+	}
+
+	private void trata(Conexao conexao, byte tipo, int sequencia, int corpo, ByteBuffer buf) {
+		if (tipo == ProtocoloAgente.OLA) {
+			// uma apresentacao por conexao, na versao do protocolo e com o nome inteiro
+			if (conexao.agente != null || corpo < 2 || buf.get() != ProtocoloAgente.VERSAO) {
+				fecha(conexao);
+				return;
+			}
+			byte[] nome = new byte[buf.get() & 0xff];
+			if (corpo < 2 + nome.length) {
+				fecha(conexao);
+				return;
+			}
+			buf.get(nome);
+			conexao.agente = new AgenteRemoto(this, conexao, new String(nome, StandardCharsets.UTF_8), prazoEmMilis);
+			novos.add(conexao.agente);
+			return;
+		}
+		Pedido pedido = conexao.pendentes.get(sequencia);
+		// resposta atrasada de um pedido que ja expirou
+		if (pedido == null)
+			return;
+		// a resposta tem que ser do tipo do pedido, senao o cliente esta fora do
+		// protocolo
+		boolean aposta = pedido.tipo == ProtocoloAgente.PRIMEIRA_APOSTA;
+		if (tipo != (aposta ? ProtocoloAgente.RESPOSTA_APOSTA : ProtocoloAgente.RESPOSTA_PAGA)
+				|| corpo < (aposta ? 4 : 1)) {
+			fecha(conexao);
+			return;
+		}
+		conexao.pendentes.remove(sequencia);
+		if (tipo == ProtocoloAgente.RESPOSTA_APOSTA)
+			pedido.completa(buf.getInt(), true);
+		else
+			pedido.completa(buf.get(), true);
+	}
+
+	private void expira(long agora) {
+		Pedido pedido;
+		while ((pedido = prazos.peek()) != null && (pedido.pronto() || pedido.prazo - agora <= 0)) {
+			prazos.poll();
+			if (pedido.pronto())
+				continue;
+			pedido.conexao.pendentes.remove(pedido.sequencia);
+			pedido.completa(0, false);
+		}
+	}
+
+	private void fecha(Conexao conexao) {
+		conexao.fechada = true;
+		conexao.chave.cancel();
+		try {
+			conexao.canal.close();
+		} catch (IOException e) {
+		}
+		for (Pedido pedido : conexao.pendentes.values()) {
+			pedido.completa(0, false);
+		}
+		conexao.pendentes.clear();
+		if (conexao.agente != null)
+			System.out.println(conexao.agente.nome + ": agente remoto desconectado");
+	}
+
+	static class Conexao {
+
+		final SocketChannel canal;
+		SelectionKey chave;
+		ByteBuffer leitura = ByteBuffer.allocateDirect(4 * ProtocoloAgente.MAIOR_QUADRO);
+		ByteBuffer escrita = ByteBuffer.allocateDirect(4 * ProtocoloAgente.MAIOR_QUADRO);
+		final HashMap<Integer, Pedido> pendentes = new HashMap<>();
+		int sequencia;
+		AgenteRemoto agente;
+		volatile boolean fechada;
+
+		Conexao(SocketChannel canal) {
+			this.canal = canal;
+		}
+
+		// garante espaco no buffer de escrita para um agente lento em ler
+		ByteBuffer reserva(int bytes) {
+			if (escrita.remaining() < bytes) {
+				ByteBuffer maior = ByteBuffer.allocateDirect(Math.max(2 * escrita.capacity(), escrita.position() + bytes));
+				escrita.flip();
+				maior.put(escrita);
+				escrita = maior;
+			}
+			return escrita;
+		}
+
+	}
+
+	/**
+	 * Uma decisao pendente. A thread do Controlador espera em aguarda() e a
+	 * thread do servidor chama completa() com a resposta ou no fim do prazo.
+	 */
+	static class Pedido {
+
+		final Conexao conexao;
+		final byte tipo;
+		final Carta[] jogo;
+		final int valor;
+		final long prazo;
+		int sequencia;
+
+		private boolean pronto;
+		boolean respondido;
+		private int resposta;
+
+		Pedido(Conexao conexao, byte tipo, Carta[] jogo, int valor, long prazoEmMilis) {
+			this.conexao = conexao;
+			this.tipo = tipo;
+			this.jogo = jogo;
+			this.valor = valor;
+			this.prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(prazoEmMilis);
+		}
+
+		synchronized boolean pronto() {
+			return pronto;
+		}
+
+		synchronized void completa(int resposta, boolean respondido) {
+			if (pronto)
+				return;
+			this.resposta = resposta;
+			this.respondido = respondido;
+			pronto = true;
+			notifyAll();
+		}
+
+		synchronized int aguarda(int padrao) {
+			try {
+				while (!pronto) {
+					long falta = TimeUnit.NANOSECONDS.toMillis(prazo - System.nanoTime());
+					// o servidor expira o pedido, a margem evita esperar para sempre se ele parar
+					if (falta < -1000)
+						return padrao;
+					wait(Math.max(1, falta + 1));
+				}
+			} catch (InterruptedException e) {
+				return padrao;
+			}
+			return respondido ? resposta : padrao;
+		}
+
+	}
+
+}
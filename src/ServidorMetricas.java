@@ -0,0 +1,148 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Servidor HTTP embutido com o estado das mesas:
+ * 
+ * GET /metricas - JSON com saldo, decisoes, latencia e timeouts de cada
+ * jogador e maos por segundo
+ * 
+ * GET /metricas/stream - o mesmo JSON como server-sent events, uma vez por
+ * segundo
+ * 
+ * So le os contadores das MetricasMesa, entao pode ser consultado a vontade sem
+ * atrasar o jogo. Cada cliente do stream fica com uma thread, entao as threads
+ * sao limitadas (THREADS) e o stream aceita no maximo THREADS - 1 clientes,
+ * deixando sempre uma para /metricas; o que passar disso recebe 503.
+ */
+public class ServidorMetricas {
+
+	static final int THREADS = 4;
+	static final int FILA = 16; // pedidos esperando thread; alem disso a conexao e fechada
+
+	private final HttpServer servidor;
+	private final Semaphore streams = new Semaphore(THREADS - 1);
+	private final List<MetricasMesa> mesas = new CopyOnWriteArrayList<>();
+
+	// maos por segundo, amostrado uma vez por segundo
+	private volatile double maosPorSegundo;
+	private long ultimaAmostraMaos;
+	private long ultimaAmostraNanos = System.nanoTime();
+
+	public ServidorMetricas(int porta) throws IOException {
+		servidor = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), porta), 0);
+		servidor.createContext("/metricas", this::metricas);
+		servidor.createContext("/metricas/stream", this::stream);
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<>(FILA), r -> {
+					Thread t = new Thread(r, "ServidorMetricas");
+					t.setDaemon(true);
+					return t;
+				});
+		executor.allowCoreThreadTimeOut(true);
+		servidor.setExecutor(executor);
+
+		Thread amostragem = new Thread(() -> {
+			while (true) {
+				try {
+					Thread.sleep(1000);
+				} catch (InterruptedException e) {
+					return;
+				}
+				amostra();
+			}
+		}, "ServidorMetricas amostragem");
+		amostragem.setDaemon(true);
+		amostragem.start();
+	}
+
+	public void adiciona(MetricasMesa mesa) {
+		mesas.add(mesa);
+	}
+
+	public void inicia() {
+		servidor.start();
+	}
+
+	public void encerra() {
+		servidor.stop(0);
+	}
+
+	private void amostra() {
+		long maos = 0;
+		for (MetricasMesa m : mesas) {
+			maos += m.maos.get();
+		}
+		long agora = System.nanoTime();
+		maosPorSegundo = (maos - ultimaAmostraMaos) * 1e9 / (agora - ultimaAmostraNanos);
+		ultimaAmostraMaos = maos;
+		ultimaAmostraNanos = agora;
+	}
+
+	String json() {
+		StringBuilder sb = new StringBuilder(256 * mesas.size() + 64);
+		sb.append("{\"maosPorSegundo\":").append(String.format(Locale.ROOT, "%.2f", maosPorSegundo));
+		sb.append(",\"mesas\":[");
+		boolean primeira = true;
+		for (MetricasMesa m : mesas) {
+			if (!primeira)
+				sb.append(',');
+			m.json(sb);
+			primeira = false;
+		}
+		sb.append("]}");
+		return sb.toString();
+	}
+
+	private void metricas(HttpExchange troca) throws IOException {
+		// /metricas/xyz cai aqui se nao houver contexto mais especifico
+		if (!troca.getRequestURI().getPath().equals("/metricas")) {
+			troca.sendResponseHeaders(404, -1);
+			troca.close();
+			return;
+		}
+		byte[] corpo = json().getBytes(StandardCharsets.UTF_8);
+		troca.getResponseHeaders().set("Content-Type", "application/json");
+		troca.sendResponseHeaders(200, corpo.length);
+		try (OutputStream out = troca.getResponseBody()) {
+			out.write(corpo);
+		}
+	}
+
+	private void stream(HttpExchange troca) throws IOException {
+		if (!streams.tryAcquire()) {
+			troca.sendResponseHeaders(503, -1);
+			troca.close();
+			return;
+		}
+		troca.getResponseHeaders().set("Content-Type", "text/event-stream");
+		troca.getResponseHeaders().set("Cache-Control", "no-cache");
+		troca.sendResponseHeaders(200, 0);
+		try (OutputStream out = troca.getResponseBody()) {
+			while (true) {
+				out.write(("data: " + json() + "\n\n").getBytes(StandardCharsets.UTF_8));
+				out.flush();
+				Thread.sleep(1000);
+			}
+		} catch (IOException | InterruptedException e) {
+			// cliente desconectou
+		} finally {
+			troca.close();
+			streams.release();
+		}
+	}
+
+}
@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+
+/**
+ * Simulacao sem threads e sem espera: uma Mesa sincrona joga partidas
+ * independentes, uma por semente. O baralho e os agentes randomicos de cada
+ * partida dependem so da semente, entao o resultado de um intervalo de sementes
+ * e sempre o mesmo.
+ * 
+ * Como os agentes decidem na thread do jogo, nao ha prazo: agentes lentos como
+ * o AgenteConstanteLento nao servem para simulacao.
+ * 
+ * java Simulador <agentes separados por virgula> <partidas> <maos por partida>
+ * [arquivo de ratings]
+ */
+public class Simulador {
+
+	final String[] agentes;
+	final int maosPorPartida;
+	RatingElo rating; // opcional, atualizado pelo tipo do agente
+	ResultadosColunares resultados; // opcional
+	ArquivoMaos.Escritor arquivo; // opcional
+
+	public Simulador(String[] agentes, int maosPorPartida) {
+		this.agentes = agentes;
+		this.maosPorPartida = maosPorPartida;
+	}
+
+	/**
+	 * Cria um agente pelo tipo: const, rando, prob, equidade, prob:p1:p2:... (parametros do
+	 * AgenteProbabilistico, como o AjusteProbabilistico mostra) ou o nome de uma
+	 * classe Agente com construtor vazio
+	 * 
+	 * @param tipo
+	 * @param semente usada pelos agentes randomicos
+	 * @return
+	 */
+	public static Agente criaAgente(String tipo, long semente) {
+		switch (tipo) {
+		case "const":
+			return new AgenteConstante();
+		case "rando":
+			return new AgenteRandomico(semente);
+		case "prob":
+			return new AgenteProbabilistico(false);
+		case "equidade":
+			return new AgenteEquidade(semente);
+		default:
+			if (tipo.startsWith("prob:")) {
+				String[] valores = tipo.substring(5).split(":");
+				double[] parametros = new double[valores.length];
+				for (int i = 0; i < valores.length; i++) {
+					parametros[i] = Double.parseDouble(valores[i]);
+				}
+				return new AgenteProbabilistico(parametros);
+			}
+			try {
+				return (Agente) Class.forName(tipo).getConstructor().newInstance();
+			} catch (ReflectiveOperationException e) {
+				throw new IllegalArgumentException("Agente desconhecido: " + tipo, e);
+			}
+		}
+	}
+
+	/**
+	 * Agente do assento em cada partida. Pode ser sobrescrito para simular agentes
+	 * criados de outra forma (o AjusteProbabilistico usa para os candidatos).
+	 * 
+	 * @param assento
+	 * @param semente
+	 * @return
+	 */
+	protected Agente criaAgente(int assento, long semente) {
+		return criaAgente(agentes[assento], semente);
+	}
+
+	/**
+	 * Joga uma partida para cada semente do intervalo [sementeDe, sementeAte)
+	 * 
+	 * @param sementeDe
+	 * @param sementeAte
+	 * @return
+	 */
+	public EstatisticasSimulacao simula(long sementeDe, long sementeAte) {
+		EstatisticasSimulacao estatisticas = new EstatisticasSimulacao(agentes.length);
+		for (long semente = sementeDe; semente < sementeAte; semente++) {
+			Controlador[] jogadores = new Controlador[agentes.length];
+			for (int i = 0; i < jogadores.length; i++) {
+				Agente agente = criaAgente(i, semente * 1000003 + i);
+				jogadores[i] = new Controlador(agente, Poker.saldoInicial, agentes[i] + " " + (i + 1));
+			}
+			Mesa mesa = new Mesa(0, jogadores, semente);
+			mesa.sincrono = true;
+			mesa.verbose = false;
+			if (rating != null)
+				mesa.rating = rating.lote(agentes, 256);
+			if (resultados != null)
+				mesa.registraResultados(resultados);
+			if (arquivo != null)
+				try {
+					mesa.arquivaMaos(arquivo);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			try {
+				for (int m = 0; m < maosPorPartida; m++) {
+					mesa.jogaMao();
+					estatisticas.registra(mesa.observacao);
+				}
+			} catch (InterruptedException e) {
+				// a mesa sincrona nao espera
+			}
+			if (mesa.rating != null)
+				mesa.rating.descarrega();
+			estatisticas.fimDePartida(jogadores);
+		}
+		return estatisticas;
+	}
+
+	public static void main(String[] args) throws IOException {
+		String[] agentes = args[0].split(",");
+		long partidas = Long.parseLong(args[1]);
+		int maos = Integer.parseInt(args[2]);
+		Simulador simulador = new Simulador(agentes, maos);
+		Path ratings = args.length > 3 ? Path.of(args[3]) : null;
+		if (ratings != null)
+			simulador.rating = RatingElo.le(ratings);
+		long inicio = System.currentTimeMillis();
+		EstatisticasSimulacao estatisticas = simulador.simula(0, partidas);
+		estatisticas.mostra(agentes);
+		System.out.println((System.currentTimeMillis() - inicio) + " ms");
+		if (ratings != null) {
+			simulador.rating.mostra();
+			simulador.rating.grava(ratings);
+		}
+	}
+
+}
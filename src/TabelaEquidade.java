@@ -0,0 +1,316 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Probabilidade exata de ganhar ou empatar no showdown contra 1 oponente, para
+ * cada valor de pontos de Avaliacao, no jogo de 5 cartas com um baralho.
+ * 
+ * Percorre os 2.598.960 jogos e, para cada um, conta os jogos do oponente
+ * feitos com as 47 cartas restantes que nao ganham dele (inclusao-exclusao
+ * sobre as cartas em comum).
+ * 
+ * Com mais oponentes as cartas que eles tiram uns dos outros tambem contam, e
+ * a conta exata teria que percorrer os pares (trios, ...) de jogos disjuntos
+ * de cada jogo, caro demais para uma tabela; elevar a chance de 1 oponente a k
+ * so seria uma aproximacao. Para k oponentes, ou para sapatos com varios
+ * baralhos, EquidadeAnytime estima por amostragem.
+ * 
+ * Quem le a tabela e o DescarteOtimo (o descarte do AgenteProbabilistico no
+ * poker com troca). As apostas do AgenteProbabilistico continuam no oddsMap
+ * dele, que nao usa esta tabela.
+ * 
+ * Para gerar o arquivo: java TabelaEquidade [arquivo]
+ */
+public class TabelaEquidade {
+
+	static final int MAGICO = 0x50455154; // "PEQT"
+	static final int VERSAO = 2; // 1 tinha colunas aproximadas para 2 a 9 oponentes
+	static final String arquivoPadrao = "tabela-equidade.bin";
+
+	// pontos distintos em ordem crescente
+	final int[] pontos;
+	// probabilidades[i] = chance de ganhar ou empatar com pontos[i] contra 1 oponente
+	final float[] probabilidades;
+	// indice[p] = posicao em pontos do maior valor <= p
+	private final char[] indice;
+
+	private static TabelaEquidade padrao;
+
+	private TabelaEquidade(int[] pontos, float[] probabilidades) {
+		this.pontos = pontos;
+		this.probabilidades = probabilidades;
+		indice = new char[pontos[pontos.length - 1] + 1];
+		int j = 0;
+		for (int p = 0; p < indice.length; p++) {
+			while (j + 1 < pontos.length && pontos[j + 1] <= p)
+				j++;
+			indice[p] = (char) j;
+		}
+	}
+
+	/**
+	 * Tabela do arquivo padrao, ou calculada na hora se o arquivo nao existir
+	 * 
+	 * @return
+	 */
+	public static synchronized TabelaEquidade padrao() {
+		if (padrao == null) {
+			Path arquivo = Path.of(arquivoPadrao);
+			try {
+				padrao = Files.exists(arquivo) ? le(arquivo) : calcula();
+			} catch (IOException e) {
+				System.out.println("TabelaEquidade: erro ao ler " + arquivo + ": " + e.getMessage());
+				padrao = calcula();
+			}
+		}
+		return padrao;
+	}
+
+	/**
+	 * Chance de ganhar ou empatar com os pontos informados contra 1 oponente
+	 * 
+	 * @param pontos Avaliacao.pontos do jogo
+	 * @return
+	 */
+	public float probabilidade(int pontos) {
+		if (pontos < 0)
+			return 0;
+		int i = indice[Math.min(pontos, indice.length - 1)];
+		return probabilidades[i];
+	}
+
+	public float probabilidade(Carta[] jogo) {
+		return probabilidade(Avaliacao.pontos(jogo));
+	}
+
+	/**
+	 * Percorre todos os jogos de 5 cartas e monta a tabela
+	 * 
+	 * @return
+	 */
+	public static TabelaEquidade calcula() {
+		// baralho do maior para o menor valor, assim cada combinacao a < b < c < d < e
+		// ja sai ordenada como Avaliacao espera
+		Carta[] baralho = Carta.getBaralhoOrdenado();
+		ordena(baralho);
+
+		int total = (int) binomial(52, 5);
+		int[] pontosJogo = new int[total];
+		int[] cartasJogo = new int[total]; // 5 cartas de 6 bits
+		int maiorPontos = 0;
+		Carta[] jogo = new Carta[5];
+		int w = 0;
+		for (int a = 0; a < 52; a++)
+			for (int b = a + 1; b < 52; b++)
+				for (int c = b + 1; c < 52; c++)
+					for (int d = c + 1; d < 52; d++)
+						for (int e = d + 1; e < 52; e++) {
+							jogo[0] = baralho[a];
+							jogo[1] = baralho[b];
+							jogo[2] = baralho[c];
+							jogo[3] = baralho[d];
+							jogo[4] = baralho[e];
+							pontosJogo[w] = Avaliacao.pontos(jogo);
+							cartasJogo[w] = a | b << 6 | c << 12 | d << 18 | e << 24;
+							maiorPontos = Math.max(maiorPontos, pontosJogo[w]);
+							w++;
+						}
+
+		// ordena os jogos pelos pontos (counting sort)
+		int[] inicioPontos = new int[maiorPontos + 2];
+		for (int i = 0; i < total; i++) {
+			inicioPontos[pontosJogo[i] + 1]++;
+		}
+		int distintos = 0;
+		for (int p = 0; p <= maiorPontos; p++) {
+			if (inicioPontos[p + 1] > 0)
+				distintos++;
+			inicioPontos[p + 1] += inicioPontos[p];
+		}
+		int[] ordem = new int[total];
+		int[] proximo = inicioPontos.clone();
+		for (int i = 0; i < total; i++) {
+			ordem[proximo[pontosJogo[i]]++] = cartasJogo[i];
+		}
+
+		// jogos ja vistos (pontos <= atual) que contem cada carta, par, trinca e quadra
+		int[] uma = new int[52];
+		int[] duas = new int[(int) binomial(52, 2)];
+		int[] tres = new int[(int) binomial(52, 3)];
+		int[] quatro = new int[(int) binomial(52, 4)];
+		long vistos = 0;
+		long disjuntosPorJogo = binomial(47, 5);
+
+		int[] pontos = new int[distintos];
+		float[] probabilidades = new float[distintos];
+		int[] k = new int[5];
+		int g = 0;
+		for (int p = 0; p <= maiorPontos; p++) {
+			int de = inicioPontos[p], ate = inicioPontos[p + 1];
+			if (de == ate)
+				continue;
+			// primeiro entram todos os jogos com os mesmos pontos (empate conta)
+			for (int i = de; i < ate; i++) {
+				desempacota(ordem[i], k);
+				acumula(k, uma, duas, tres, quatro);
+				vistos++;
+			}
+			// jogos do oponente sem cartas em comum e com pontos <= p
+			long naoPerde = 0;
+			for (int i = de; i < ate; i++) {
+				desempacota(ordem[i], k);
+				naoPerde += vistos - 1 - soma1(k, uma) + soma2(k, duas) - soma3(k, tres) + soma4(k, quatro);
+			}
+			pontos[g] = p;
+			probabilidades[g] = (float) ((double) naoPerde / ((long) (ate - de) * disjuntosPorJogo));
+			g++;
+		}
+		return new TabelaEquidade(pontos, probabilidades);
+	}
+
+	public void grava(Path arquivo) throws IOException {
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(arquivo)))) {
+			out.writeInt(MAGICO);
+			out.writeInt(VERSAO);
+			out.writeInt(pontos.length);
+			for (int i = 0; i < pontos.length; i++) {
+				out.writeInt(pontos[i]);
+			}
+			for (int i = 0; i < pontos.length; i++) {
+				out.writeFloat(probabilidades[i]);
+			}
+		}
+	}
+
+	public static TabelaEquidade le(Path arquivo) throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(arquivo)))) {
+			if (in.readInt() != MAGICO || in.readInt() != VERSAO)
+				throw new IOException(arquivo + " nao e uma tabela de equidade valida");
+			int n = in.readInt();
+			int[] pontos = new int[n];
+			for (int i = 0; i < n; i++) {
+				pontos[i] = in.readInt();
+			}
+			float[] probabilidades = new float[n];
+			for (int i = 0; i < n; i++) {
+				probabilidades[i] = in.readFloat();
+			}
+			return new TabelaEquidade(pontos, probabilidades);
+		}
+	}
+
+	private static void desempacota(int cartas, int[] k) {
+		for (int j = 0; j < 5; j++) {
+			k[j] = (cartas >>> (6 * j)) & 63;
+		}
+	}
+
+	private static void acumula(int[] k, int[] uma, int[] duas, int[] tres, int[] quatro) {
+		for (int a = 0; a < 5; a++) {
+			uma[k[a]]++;
+			for (int b = a + 1; b < 5; b++) {
+				duas[indice(k[a], k[b])]++;
+				for (int c = b + 1; c < 5; c++) {
+					tres[indice(k[a], k[b], k[c])]++;
+					for (int d = c + 1; d < 5; d++) {
+						quatro[indice(k[a], k[b], k[c], k[d])]++;
+					}
+				}
+			}
+		}
+	}
+
+	private static long soma1(int[] k, int[] uma) {
+		long s = 0;
+		for (int a = 0; a < 5; a++)
+			s += uma[k[a]];
+		return s;
+	}
+
+	private static long soma2(int[] k, int[] duas) {
+		long s = 0;
+		for (int a = 0; a < 5; a++)
+			for (int b = a + 1; b < 5; b++)
+				s += duas[indice(k[a], k[b])];
+		return s;
+	}
+
+	private static long soma3(int[] k, int[] tres) {
+		long s = 0;
+		for (int a = 0; a < 5; a++)
+			for (int b = a + 1; b < 5; b++)
+				for (int c = b + 1; c < 5; c++)
+					s += tres[indice(k[a], k[b], k[c])];
+		return s;
+	}
+
+	private static long soma4(int[] k, int[] quatro) {
+		long s = 0;
+		for (int a = 0; a < 5; a++)
+			for (int b = a + 1; b < 5; b++)
+				for (int c = b + 1; c < 5; c++)
+					for (int d = c + 1; d < 5; d++)
+						s += quatro[indice(k[a], k[b], k[c], k[d])];
+		return s;
+	}
+
+	// indice combinatorio de cartas em ordem crescente
+	private static int indice(int a, int b) {
+		return a + B[b][2];
+	}
+
+	private static int indice(int a, int b, int c) {
+		return a + B[b][2] + B[c][3];
+	}
+
+	private static int indice(int a, int b, int c, int d) {
+		return a + B[b][2] + B[c][3] + B[d][4];
+	}
+
+	// B[n][k] = binomial(n, k)
+	private static final int[][] B = new int[52][5];
+	static {
+		for (int n = 0; n < 52; n++) {
+			for (int k = 0; k < 5; k++) {
+				B[n][k] = (int) binomial(n, k);
+			}
+		}
+	}
+
+	private static long binomial(int n, int k) {
+		if (k < 0 || k > n)
+			return 0;
+		long r = 1;
+		for (int i = 1; i <= k; i++) {
+			r = r * (n - k + i) / i;
+		}
+		return r;
+	}
+
+	private static void ordena(Carta[] baralho) {
+		for (int i = 0; i < baralho.length; i++) {
+			for (int j = i + 1; j < baralho.length; j++) {
+				if (baralho[i].valor < baralho[j].valor) {
+					Carta temp = baralho[i];
+					baralho[i] = baralho[j];
+					baralho[j] = temp;
+				}
+			}
+		}
+	}
+
+	public static void main(String[] args) throws IOException {
+		Path arquivo = Path.of(args.length > 0 ? args[0] : arquivoPadrao);
+		long inicio = System.currentTimeMillis();
+		TabelaEquidade tabela = calcula();
+		tabela.grava(arquivo);
+		System.out.println(tabela.pontos.length + " valores de pontos gravados em " + arquivo + " em "
+				+ (System.currentTimeMillis() - inicio) + " ms");
+	}
+
+}
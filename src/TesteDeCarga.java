@@ -0,0 +1,349 @@
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+
+/**
+ * Teste de carga de longa duracao com o jogo de verdade: varias Mesas com
+ * threads, cada uma na sua thread e com a mesma mistura de agentes, jogando no
+ * ritmo pedido. Relata a latencia da mao (p50/p99/p99,9), as maos por segundo
+ * ao longo do tempo, as pausas de GC, o crescimento do heap e os timeouts dos
+ * agentes, e grava um relatorio JSON.
+ * 
+ * A latencia e contada do horario em que a mao deveria comecar, entao uma mesa
+ * atrasada aparece na latencia em vez de so jogar menos maos. Jogadores que
+ * quebram recebem o saldo inicial de novo, para a carga nao mudar.
+ * 
+ * Cada mao espera o intervalo duas vezes, entao uma mesa joga no maximo 1000 /
+ * (2 * intervalo) maos por segundo.
+ * 
+ * java TesteDeCarga <agentes por mesa: const,rando,lento,prob,equidade,...>
+ * <mesas> <maos por segundo por mesa> <duracao em segundos> [intervalo em ms]
+ * [espera do lento em ms] [relatorio]
+ */
+public class TesteDeCarga {
+
+	final String[] agentes;
+	final int mesas;
+	final double maosPorSegundo;
+	final long duracaoEmSegundos;
+	final long intervalo;
+	final long esperaLento;
+
+	// resultados
+	final HistogramaLatencia latencia = new HistogramaLatencia();
+	final HistogramaLatencia servico = new HistogramaLatencia();
+	final HistogramaLatencia pausasGc = new HistogramaLatencia();
+	final AtomicLong maos = new AtomicLong();
+	final List<long[]> porSegundo = new ArrayList<>(); // segundo, maos, heap usado, timeouts (maos e timeouts no segundo)
+	final List<long[]> heapAposGc = new ArrayList<>(); // milissegundo, bytes
+	long pausasGcTotalMs;
+	long coletas;
+	final List<Mesa> mesasCriadas = new ArrayList<>();
+
+	public TesteDeCarga(String[] agentes, int mesas, double maosPorSegundo, long duracaoEmSegundos, long intervalo,
+			long esperaLento) {
+		this.agentes = agentes;
+		this.mesas = mesas;
+		this.maosPorSegundo = maosPorSegundo;
+		this.duracaoEmSegundos = duracaoEmSegundos;
+		this.intervalo = intervalo;
+		this.esperaLento = esperaLento;
+	}
+
+	Agente criaAgente(String tipo, long semente) {
+		if (tipo.equals("lento"))
+			return new AgenteConstanteLento(esperaLento);
+		return Simulador.criaAgente(tipo, semente);
+	}
+
+	public void executa() throws InterruptedException {
+		long inicio = System.nanoTime();
+		long fim = inicio + duracaoEmSegundos * 1000000000L;
+		observaGc(inicio);
+
+		List<Thread> threads = new ArrayList<>();
+		for (int m = 0; m < mesas; m++) {
+			Controlador[] jogadores = new Controlador[agentes.length];
+			for (int i = 0; i < jogadores.length; i++) {
+				jogadores[i] = new Controlador(criaAgente(agentes[i], m * 1000003L + i), Poker.saldoInicial,
+						agentes[i] + " " + (i + 1));
+				jogadores[i].setDaemon(true);
+			}
+			Mesa mesa = new Mesa(m + 1, jogadores, m);
+			mesa.miliSegundosDeIntervalo = intervalo;
+			mesa.verbose = false;
+			mesasCriadas.add(mesa);
+			Thread t = new Thread(() -> joga(mesa, inicio, fim), "Mesa " + (m + 1));
+			t.setDaemon(true);
+			threads.add(t);
+		}
+		for (Thread t : threads) {
+			t.start();
+		}
+
+		// uma amostra por segundo
+		long segundo = 0;
+		long maosAntes = 0;
+		long timeoutsAntes = 0;
+		while (System.nanoTime() < fim) {
+			LockSupport.parkNanos(inicio + (segundo + 1) * 1000000000L - System.nanoTime());
+			segundo++;
+			long total = maos.get();
+			long timeouts = 0;
+			for (Mesa mesa : mesasCriadas) {
+				for (int i = 0; i < agentes.length; i++) {
+					timeouts += mesa.metricas.timeouts.get(i);
+				}
+			}
+			long heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+			synchronized (porSegundo) {
+				porSegundo.add(new long[] { segundo, total - maosAntes, heap, timeouts - timeoutsAntes });
+			}
+			System.out.printf("%4d s: %6d maos/s, heap %4d MB, %d timeouts/s%n", segundo, total - maosAntes,
+					heap >> 20, timeouts - timeoutsAntes);
+			maosAntes = total;
+			timeoutsAntes = timeouts;
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+	}
+
+	private void joga(Mesa mesa, long inicio, long fim) {
+		HistogramaLatencia minhaLatencia = new HistogramaLatencia();
+		HistogramaLatencia meuServico = new HistogramaLatencia();
+		long periodo = (long) (1e9 / maosPorSegundo);
+		long prevista = inicio;
+		mesa.inicia();
+		try {
+			while (prevista < fim) {
+				long agora = System.nanoTime();
+				if (agora < prevista)
+					LockSupport.parkNanos(prevista - agora);
+				for (Controlador c : mesa.jogadores) {
+					if (c.saldo == 0)
+						c.saldo = Poker.saldoInicial;
+				}
+				long comeco = System.nanoTime();
+				mesa.jogaMao();
+				long termino = System.nanoTime();
+				minhaLatencia.registra((termino - prevista) / 1000);
+				meuServico.registra((termino - comeco) / 1000);
+				maos.incrementAndGet();
+				prevista += periodo;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		latencia.junta(minhaLatencia);
+		servico.junta(meuServico);
+	}
+
+	private void observaGc(long inicio) {
+		for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+			((NotificationEmitter) gc).addNotificationListener((Notification n, Object o) -> {
+				if (!n.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION))
+					return;
+				GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo
+						.from((CompositeData) n.getUserData());
+				long heap = 0;
+				for (MemoryUsage uso : info.getGcInfo().getMemoryUsageAfterGc().values()) {
+					heap += uso.getUsed();
+				}
+				synchronized (heapAposGc) {
+					coletas++;
+					pausasGcTotalMs += info.getGcInfo().getDuration();
+					pausasGc.registra(info.getGcInfo().getDuration() * 1000);
+					heapAposGc.add(new long[] { (System.nanoTime() - inicio) / 1000000, heap });
+				}
+			}, null, null);
+		}
+	}
+
+	// inclinacao da reta do heap depois de cada GC, em bytes por minuto
+	double crescimentoHeap() {
+		synchronized (heapAposGc) {
+			int n = heapAposGc.size();
+			if (n < 2)
+				return 0;
+			double mt = 0, mh = 0;
+			for (long[] a : heapAposGc) {
+				mt += a[0];
+				mh += a[1];
+			}
+			mt /= n;
+			mh /= n;
+			double cov = 0, var = 0;
+			for (long[] a : heapAposGc) {
+				cov += (a[0] - mt) * (a[1] - mh);
+				var += (a[0] - mt) * (a[0] - mt);
+			}
+			return var == 0 ? 0 : cov / var * 60000;
+		}
+	}
+
+	String relatorio() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("{\n  \"configuracao\": {\"agentes\": [");
+		for (int i = 0; i < agentes.length; i++) {
+			sb.append(i > 0 ? ", " : "").append('"').append(agentes[i]).append('"');
+		}
+		sb.append(String.format(Locale.ROOT,
+				"], \"mesas\": %d, \"maosPorSegundoPorMesa\": %.2f, \"duracaoSegundos\": %d, \"intervaloMs\": %d, \"esperaLentoMs\": %d},%n",
+				mesas, maosPorSegundo, duracaoEmSegundos, intervalo, esperaLento));
+		sb.append(String.format(Locale.ROOT, "  \"maos\": %d,%n  \"maosPorSegundo\": %.2f,%n", maos.get(),
+				maos.get() / (double) duracaoEmSegundos));
+		sb.append("  \"latenciaMs\": ").append(latencia.json()).append(",\n");
+		sb.append("  \"servicoMs\": ").append(servico.json()).append(",\n");
+		synchronized (heapAposGc) {
+			sb.append(String.format(Locale.ROOT,
+					"  \"gc\": {\"coletas\": %d, \"pausaTotalMs\": %d, \"pausasMs\": %s},%n", coletas,
+					pausasGcTotalMs, pausasGc.json()));
+			long heapInicial = heapAposGc.isEmpty() ? 0 : heapAposGc.get(0)[1];
+			long heapFinal = heapAposGc.isEmpty() ? 0 : heapAposGc.get(heapAposGc.size() - 1)[1];
+			sb.append(String.format(Locale.ROOT,
+					"  \"heap\": {\"aposPrimeiroGc\": %d, \"aposUltimoGc\": %d, \"crescimentoBytesPorMinuto\": %.0f},%n",
+					heapInicial, heapFinal, crescimentoHeap()));
+		}
+
+		// por tipo de agente
+		Map<String, long[]> porAgente = new LinkedHashMap<>(); // decisoes, timeouts, latencia total
+		for (Mesa mesa : mesasCriadas) {
+			MetricasMesa m = mesa.metricas;
+			for (int i = 0; i < agentes.length; i++) {
+				long[] a = porAgente.computeIfAbsent(agentes[i], k -> new long[3]);
+				a[0] += m.decisoes.get(i);
+				a[1] += m.timeouts.get(i);
+				a[2] += m.latenciaTotalNanos.get(i);
+			}
+		}
+		sb.append("  \"agentes\": {");
+		boolean primeiro = true;
+		long decisoes = 0, timeouts = 0;
+		for (Map.Entry<String, long[]> e : porAgente.entrySet()) {
+			long[] a = e.getValue();
+			decisoes += a[0];
+			timeouts += a[1];
+			sb.append(primeiro ? "\n" : ",\n");
+			sb.append(String.format(Locale.ROOT,
+					"    \"%s\": {\"decisoes\": %d, \"timeouts\": %d, \"taxaTimeout\": %.5f, \"latenciaMediaMs\": %.3f}",
+					e.getKey(), a[0], a[1], a[1] / Math.max(1.0, a[0] + a[1]), a[0] == 0 ? 0 : a[2] / 1e6 / a[0]));
+			primeiro = false;
+		}
+		sb.append("\n  },\n");
+		sb.append(String.format(Locale.ROOT, "  \"taxaTimeout\": %.5f,%n",
+				timeouts / Math.max(1.0, decisoes + timeouts)));
+
+		sb.append("  \"porSegundo\": [");
+		synchronized (porSegundo) {
+			for (int i = 0; i < porSegundo.size(); i++) {
+				long[] s = porSegundo.get(i);
+				sb.append(i > 0 ? "," : "").append("\n    {\"segundo\": ").append(s[0]).append(", \"maos\": ")
+						.append(s[1]).append(", \"heap\": ").append(s[2]).append(", \"timeouts\": ").append(s[3])
+						.append('}');
+			}
+		}
+		sb.append("\n  ]\n}\n");
+		return sb.toString();
+	}
+
+	/**
+	 * Histograma de latencias em microssegundos com precisao de ~1% (128 faixas
+	 * por potencia de 2). Cada mesa usa o seu e eles sao juntados no fim.
+	 */
+	static class HistogramaLatencia {
+
+		private final long[] contagens = new long[128 * 50];
+		private long total;
+		private long maximo;
+
+		private static int faixa(long v) {
+			if (v < 128)
+				return (int) Math.max(0, v);
+			int e = 63 - Long.numberOfLeadingZeros(v);
+			return 128 + (e - 7) * 128 + (int) (v >>> (e - 7)) - 128;
+		}
+
+		private static long valor(int faixa) {
+			if (faixa < 128)
+				return faixa;
+			int e = 7 + (faixa - 128) / 128;
+			long sub = (faixa - 128) % 128;
+			// meio da faixa
+			return ((128 + sub) << (e - 7)) + ((1L << (e - 7)) >> 1);
+		}
+
+		synchronized void registra(long micros) {
+			contagens[faixa(micros)]++;
+			total++;
+			maximo = Math.max(maximo, micros);
+		}
+
+		synchronized void junta(HistogramaLatencia outro) {
+			synchronized (outro) {
+				for (int i = 0; i < contagens.length; i++) {
+					contagens[i] += outro.contagens[i];
+				}
+				total += outro.total;
+				maximo = Math.max(maximo, outro.maximo);
+			}
+		}
+
+		/**
+		 * Percentil em microssegundos
+		 * 
+		 * @param p de 0 a 100
+		 * @return
+		 */
+		synchronized long percentil(double p) {
+			if (total == 0)
+				return 0;
+			long alvo = (long) Math.ceil(total * p / 100);
+			long acumulado = 0;
+			for (int i = 0; i < contagens.length; i++) {
+				acumulado += contagens[i];
+				if (acumulado >= Math.max(1, alvo))
+					return Math.min(valor(i), maximo);
+			}
+			return maximo;
+		}
+
+		synchronized String json() {
+			return String.format(Locale.ROOT, "{\"n\": %d, \"p50\": %.3f, \"p99\": %.3f, \"p999\": %.3f, \"max\": %.3f}",
+					total, percentil(50) / 1000.0, percentil(99) / 1000.0, percentil(99.9) / 1000.0,
+					maximo / 1000.0);
+		}
+
+	}
+
+	public static void main(String[] args) throws InterruptedException, IOException {
+		TesteDeCarga teste = new TesteDeCarga(args[0].split(","), Integer.parseInt(args[1]),
+				Double.parseDouble(args[2]), Long.parseLong(args[3]), args.length > 4 ? Long.parseLong(args[4]) : 5,
+				args.length > 5 ? Long.parseLong(args[5]) : 20);
+		Path arquivo = Path.of(args.length > 6 ? args[6] : "relatorio-carga.json");
+		teste.executa();
+		String relatorio = teste.relatorio();
+		Files.writeString(arquivo, relatorio);
+		System.out.println("\n latencia da mao (ms): " + teste.latencia.json());
+		System.out.println(" pausas de GC (ms): " + teste.pausasGc.json());
+		System.out.printf(Locale.ROOT, " heap: %.1f MB/minuto depois do GC%n", teste.crescimentoHeap() / (1 << 20));
+		System.out.println(" relatorio em " + arquivo);
+	}
+
+}
@@ -0,0 +1,40 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+
+/**
+ * Processo que roda lotes de simulacao para um CoordenadorSimulacao, na mesma
+ * maquina ou em outra.
+ * 
+ * java TrabalhadorSimulacao <host> <porta>
+ */
+public class TrabalhadorSimulacao {
+
+	// coordenador -> trabalhador: [byte LOTE][UTF agentes][int maos][long de][long ate]
+	static final byte LOTE = 1;
+	// coordenador -> trabalhador: [byte FIM]
+	static final byte FIM = 0;
+
+	public static void main(String[] args) throws IOException {
+		try (Socket socket = new Socket(args[0], Integer.parseInt(args[1]))) {
+			socket.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+			while (in.readByte() == LOTE) {
+				String[] agentes = in.readUTF().split(",");
+				int maos = in.readInt();
+				long de = in.readLong();
+				long ate = in.readLong();
+				new Simulador(agentes, maos).simula(de, ate).grava(out);
+				out.flush();
+			}
+		} catch (EOFException e) {
+			// o coordenador terminou
+		}
+	}
+
+}